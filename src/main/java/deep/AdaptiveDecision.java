@@ -0,0 +1,17 @@
+package deep;
+
+/**
+ * Snapshot of what adaptive copying (see {@link CopyOptions#adaptive()}) has decided for one root class.
+ *
+ * @param order      traversal order used for the next copies of the root class
+ * @param settled    {@code false} while the orders are still being tried out
+ * @param copies     copies of the root class made so far
+ * @param meanNanos  mean duration of the copies measured with {@code order}, {@code 0} before any measurement
+ * @param meanScanNanos mean duration of a walk over one of the copies made with {@code order} while trying
+ *                      the orders out, the stand-in for reading the copy afterwards, {@code 0} before any measurement
+ * @param meanNodes  mean number of objects visited by those copies, the size of a typical graph
+ * @param meanElements mean number of element slots of arrays and collections in those copies, the shape
+ *                     of a typical graph: {@code 0} when it holds no containers
+ */
+public record AdaptiveDecision(TraversalOrder order, boolean settled, long copies, long meanNanos, long meanScanNanos, long meanNodes, long meanElements) {
+}
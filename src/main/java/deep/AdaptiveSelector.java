@@ -0,0 +1,177 @@
+package deep;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the traversal order for each root class from the copies made so far. Every order is first tried
+ * a few times, then the one with the lowest mean cost is used until the next re-evaluation, which starts
+ * the trial over so that the choice follows changes in the graphs being copied. Graphs holding no arrays
+ * or collections settle on the depth-first order right away: the other orders exist to lay elements out
+ * next to each other, and cost more otherwise. Thread-safe.
+ *
+ * <p>
+ * The cost of an order is the duration of its copies plus that of a scan of each copy, a walk over the whole
+ * copy as {@link DeepEquality#deepHash(Object, CopyOptions)} makes it. The copy is cheapest depth-first, while
+ * the layouts of the other orders pay off, if at all, when the copy is read afterwards, which the scan stands for.
+ * Only the copies made while trying the orders out are scanned. Consumers reading copies in another way,
+ * such as list elements by index only, may be better served by {@link CopyOptions#traversing(TraversalOrder)}.
+ * </p>
+ */
+final class AdaptiveSelector {
+
+    private static final TraversalOrder[] ORDERS = TraversalOrder.values();
+    // measured copies per order before settling
+    private static final int TRIALS_PER_ORDER = 5;
+    // copies of a root class after which the orders are tried out again
+    private static final long REEVALUATION_PERIOD = 10_000;
+
+    private final Map<Class<?>, Profile> profiles = new ConcurrentHashMap<>();
+
+    TraversalOrder orderFor(Class<?> rootClass) {
+        return profiles.computeIfAbsent(rootClass, ignored -> new Profile()).nextOrder();
+    }
+
+    /**
+     * Whether copies of the root class are to be scanned, while the orders are tried out.
+     */
+    boolean scans(Class<?> rootClass) {
+        Profile profile = profiles.get(rootClass);
+        return profile == null || !profile.isSettled();
+    }
+
+    /**
+     * Times a walk over the whole copy.
+     *
+     * @return the duration of the walk, {@code -1} if it failed
+     */
+    static long scanNanos(Object copy, CopyOptions options) {
+        long start = System.nanoTime();
+        try {
+            DeepEquality.deepHash(copy, options);
+        } catch (DeepCopyException e) {
+            // the copy itself succeeded, which is what matters
+            return -1;
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @param scanNanos duration of a scan of the copy, {@code -1} if it was not scanned
+     * @param nodes     objects visited by the copy
+     * @param elements  element slots of arrays and collections filled by the copy
+     */
+    void record(Class<?> rootClass, TraversalOrder order, long nanos, long scanNanos, int nodes, int elements) {
+        profiles.computeIfAbsent(rootClass, ignored -> new Profile()).record(order, nanos, scanNanos, nodes, elements);
+    }
+
+    /**
+     * Decisions per root class, sorted by class name.
+     */
+    Map<Class<?>, AdaptiveDecision> decisions() {
+        var decisions = new TreeMap<Class<?>, AdaptiveDecision>((a, b) -> a.getName().compareTo(b.getName()));
+        profiles.forEach((rootClass, profile) -> decisions.put(rootClass, profile.decision()));
+        return decisions;
+    }
+
+    private static final class Profile {
+        private final long[] samples = new long[ORDERS.length];
+        private final long[] nanos = new long[ORDERS.length];
+        private final long[] scans = new long[ORDERS.length];
+        private final long[] scanNanos = new long[ORDERS.length];
+        private final long[] nodes = new long[ORDERS.length];
+        private final long[] elements = new long[ORDERS.length];
+
+        private long copies;
+        // index of the chosen order, -1 while trying them out
+        private int chosen = -1;
+
+        synchronized TraversalOrder nextOrder() {
+            if (chosen >= 0) {
+                return ORDERS[chosen];
+            }
+
+            int leastTried = 0;
+            for (int i = 1; i < ORDERS.length; i++) {
+                if (samples[i] < samples[leastTried]) {
+                    leastTried = i;
+                }
+            }
+            return ORDERS[leastTried];
+        }
+
+        synchronized boolean isSettled() {
+            return chosen >= 0;
+        }
+
+        synchronized void record(TraversalOrder order, long elapsedNanos, long scanElapsedNanos, int nodeCount, int elementCount) {
+            copies++;
+
+            // the first copy of a root class pays for planning, whatever the order
+            if (copies == 1) {
+                return;
+            }
+
+            int i = order.ordinal();
+            samples[i]++;
+            nanos[i] += elapsedNanos;
+            nodes[i] += nodeCount;
+            elements[i] += elementCount;
+            if (chosen < 0 && scanElapsedNanos >= 0) {
+                scans[i]++;
+                scanNanos[i] += scanElapsedNanos;
+            }
+
+            if (chosen < 0 && elementCount == 0) {
+                // without elements the orders lay copies out much alike, and depth-first is the cheapest
+                chosen = TraversalOrder.DEPTH_FIRST.ordinal();
+            } else if (chosen < 0 && isTrialOver()) {
+                chosen = cheapest();
+            } else if (chosen >= 0 && copies % REEVALUATION_PERIOD == 0) {
+                chosen = -1;
+                for (int j = 0; j < ORDERS.length; j++) {
+                    samples[j] = nanos[j] = scans[j] = scanNanos[j] = nodes[j] = elements[j] = 0;
+                }
+            }
+        }
+
+        synchronized AdaptiveDecision decision() {
+            int current = chosen >= 0 ? chosen : nextOrder().ordinal();
+            long count = samples[current];
+
+            return new AdaptiveDecision(
+                ORDERS[current], chosen >= 0, copies,
+                count == 0 ? 0 : nanos[current] / count,
+                scans[current] == 0 ? 0 : scanNanos[current] / scans[current],
+                count == 0 ? 0 : nodes[current] / count,
+                count == 0 ? 0 : elements[current] / count
+            );
+        }
+
+        private boolean isTrialOver() {
+            for (long count : samples) {
+                if (count < TRIALS_PER_ORDER) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int cheapest() {
+            int cheapest = 0;
+            for (int i = 1; i < ORDERS.length; i++) {
+                if (meanCost(i) < meanCost(cheapest)) {
+                    cheapest = i;
+                }
+            }
+            return cheapest;
+        }
+
+        // mean duration of a copy and of a scan of it; orders whose copies could not be scanned compete on copies alone
+        private double meanCost(int order) {
+            double copy = (double) nanos[order] / samples[order];
+            return scans[order] == 0 ? copy : copy + (double) scanNanos[order] / scans[order];
+        }
+    }
+}
@@ -3,19 +3,80 @@ package deep;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
+/**
+ * Creates bare instances through the constructor with the fewest parameters, fed with default values.
+ * Thread-safe; constructors are looked up once per class, and a class whose constructor rejects the default values
+ * with a {@link NullPointerException} is answered from cache afterwards, without invoking the constructor again.
+ */
 final class BareInstancesSource {
 
     private final static Comparator<Constructor<?>> BY_PARAMS_COUNT = Comparator.comparingInt(Constructor::getParameterCount);
     private final static Object[] VARARG_DUMMY = new Object[0];
 
-    private final Map<Class<?>, Object> primitiveDefaults = new HashMap<>();
-    private final Map<Class<?>, Generator<?>> cache = new HashMap<>();
+    private final Map<Class<?>, Object> primitiveDefaults = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Generator<?>> cache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, InstantiationResult.NullPointer> nullPointers = new ConcurrentHashMap<>();
+    // classes whose constructor was seen by probe(Class) to accept the default values
+    private final Set<Class<?>> accepting = ConcurrentHashMap.newKeySet();
 
     public InstantiationResult newInstanceOf(Class<?> clazz) {
+        var knownNullPointer = nullPointers.get(clazz);
+        if (knownNullPointer != null) {
+            return knownNullPointer;
+        }
+
+        var maker = generatorFor(clazz);
+
+        try {
+            return new InstantiationResult.Success(maker.get());
+        } catch (Exception exception) {
+            var unwrapped = unwrap(exception, NullPointerException.class);
+
+            if (unwrapped instanceof NullPointerException npe) {
+                var result = new InstantiationResult.NullPointer(npe);
+                nullPointers.put(clazz, result);
+                return result;
+            } else {
+                return new InstantiationResult.GeneralFailure(exception);
+            }
+        }
+    }
+
+    /**
+     * Tells how {@link #newInstanceOf(Class)} fares with the class: {@code null} if it succeeds, the failure otherwise.
+     * The class is instantiated, and the instance dropped, only the first time it is probed.
+     */
+    InstantiationResult probe(Class<?> clazz) {
+        if (accepting.contains(clazz)) {
+            return null;
+        }
+
+        var result = newInstanceOf(clazz);
+        if (result instanceof InstantiationResult.Success) {
+            accepting.add(clazz);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Looks up and opens the constructor {@link #newInstanceOf(Class)} will use, without invoking it,
+     * so that neither the constructor nor the static initializer of the class runs.
+     */
+    void lookUpConstructor(Class<?> clazz) {
+        generatorFor(clazz);
+    }
+
+    /**
+     * Returns the constructor call {@link #newInstanceOf(Class)} makes, for callers that instantiate the class
+     * many times and have {@linkplain #probe(Class) probed} it already.
+     */
+    Generator<?> generatorFor(Class<?> clazz) {
         var maker = cache.get(clazz);
 
         if (maker == null) {
@@ -29,17 +90,16 @@ final class BareInstancesSource {
             cache.put(clazz, maker);
         }
 
-        try {
-            return new InstantiationResult.Success(maker.get());
-        } catch (Exception exception) {
-            var unwrapped = unwrap(exception, NullPointerException.class);
+        return maker;
+    }
 
-            if (unwrapped instanceof NullPointerException npe) {
-                return new InstantiationResult.NullPointer(npe);
-            } else {
-                return new InstantiationResult.GeneralFailure(exception);
-            }
-        }
+    /**
+     * Describes the failed attempt of {@link #newInstanceOf(Class)} to instantiate the class, for diagnostics.
+     */
+    String describeAttempt(Class<?> clazz, Exception outcome) {
+        var maker = cache.get(clazz);
+        Class<?>[] parameterTypes = maker == null ? new Class<?>[0] : maker.constructor().getParameterTypes();
+        return DeepCopyException.attempt(clazz, parameterTypes, "default arguments", outcome);
     }
 
     private Object[] parametersCompatibleWith(Constructor<?> constructor) {
@@ -101,7 +161,7 @@ final class BareInstancesSource {
         return exception;
     }
 
-    private record Generator<T>(
+    record Generator<T>(
         Constructor<T> constructor,
         Object[] parameters
     ) {
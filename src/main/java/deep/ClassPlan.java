@@ -0,0 +1,199 @@
+package deep;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-class copy plan: everything about a class that does not depend on a particular instance,
+ * resolved once and reused by every copy made with the same {@link CopyOptions}.
+ */
+final class ClassPlan {
+
+    enum Kind {
+        /** immutable value, reused as is */
+        ATOMIC,
+        /** shared by policy, reused as is */
+        SHARED,
+        /** skipped by policy, replaced with {@code null} */
+        SKIPPED,
+        ARRAY,
+        RECORD,
+        PLAIN,
+        /** copied by a dedicated {@link DeepCopier} */
+        CUSTOM
+    }
+
+    enum FieldAction {
+        COPY,
+        SHARE,
+        SKIP
+    }
+
+    /**
+     * How the value of a copied field is dispatched, decided from the declared type of the field.
+     */
+    enum Dispatch {
+        /** declared type is atomic, the value is reused as is */
+        ATOMIC,
+        /** declared type is final, so the runtime class and its plan are known in advance */
+        MONOMORPHIC,
+        /** runtime class has to be inspected for each value */
+        POLYMORPHIC
+    }
+
+    static final class FieldPlan {
+        private final Field field;
+        private final FieldAction action;
+        private final Dispatch dispatch;
+        private final Object defaultValue;
+
+        private ClassPlan declaredTypePlan;
+
+        /**
+         * @param field        accessible field
+         * @param action       what to put into the copy
+         * @param dispatch     how to copy the value when the action is {@link FieldAction#COPY}
+         * @param defaultValue value used for skipped fields
+         */
+        FieldPlan(Field field, FieldAction action, Dispatch dispatch, Object defaultValue) {
+            this.field = field;
+            this.action = action;
+            this.dispatch = dispatch;
+            this.defaultValue = defaultValue;
+        }
+
+        Field field() {
+            return field;
+        }
+
+        FieldAction action() {
+            return action;
+        }
+
+        Dispatch dispatch() {
+            return dispatch;
+        }
+
+        Object defaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * Plan of the declared type, linked on first use rather than on construction, so that
+         * self-referencing types do not recurse while being planned. Racing threads link the same plan.
+         */
+        ClassPlan declaredTypePlan(ClassPlans plans) {
+            var plan = declaredTypePlan;
+
+            if (plan == null) {
+                plan = plans.of(field.getType());
+                declaredTypePlan = plan;
+            }
+
+            return plan;
+        }
+    }
+
+    private final Class<?> type;
+    private final Kind kind;
+    private final Supplier<List<FieldPlan>> fieldsPlanner;
+    private final boolean transparent;
+    private final boolean tracked;
+    private final boolean atomicElements;
+    private final DeepCopier<Object> copier;
+
+    private List<FieldPlan> fields;
+    private volatile Constructor<?> canonicalConstructor;
+
+    ClassPlan(Class<?> type, Kind kind, Supplier<List<FieldPlan>> fieldsPlanner, boolean transparent, boolean tracked,
+              boolean atomicElements, DeepCopier<Object> copier) {
+        this.type = type;
+        this.kind = kind;
+        this.fieldsPlanner = fieldsPlanner;
+        this.transparent = transparent;
+        this.tracked = tracked;
+        this.atomicElements = atomicElements;
+        this.copier = copier;
+    }
+
+    Class<?> type() {
+        return type;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * All non-static fields of the class and its superclasses, in declaration order, the subclass first.
+     * Planned, and made accessible, on first use, so that classes copied by a generated copier never are
+     * unless something else than copying asks for their fields. Racing threads plan equal lists.
+     */
+    List<FieldPlan> fields() {
+        var planned = fields;
+
+        if (planned == null) {
+            planned = fieldsPlanner.get();
+            fields = planned;
+        }
+
+        return planned;
+    }
+
+    /**
+     * Whether {@link #fields()} has been planned yet.
+     */
+    boolean hasPlannedFields() {
+        return fields != null;
+    }
+
+    /**
+     * Whether the class adds no level of its own to depth and path limits, see {@link CopyLimits}.
+     */
+    boolean isTransparent() {
+        return transparent;
+    }
+
+    /**
+     * Whether instances must go through the visited map, because they may be met again through
+     * a shared reference or a cycle. Always {@code false} for non-composite kinds.
+     */
+    boolean isTracked() {
+        return tracked;
+    }
+
+    /**
+     * Whether the class is an array whose elements are always atomic, so it can be copied in bulk.
+     */
+    boolean hasAtomicElements() {
+        return atomicElements;
+    }
+
+    /**
+     * The dedicated copier of a {@link Kind#CUSTOM} class, {@code null} for other kinds.
+     */
+    DeepCopier<Object> copier() {
+        return copier;
+    }
+
+    /**
+     * Returns the constructor whose parameters match {@link #fields()} one to one.
+     *
+     * @throws NoSuchMethodException if there is no such constructor
+     */
+    Constructor<?> canonicalConstructor() throws NoSuchMethodException {
+        var ctor = canonicalConstructor;
+
+        if (ctor == null) {
+            ctor = type.getDeclaredConstructor(
+                fields().stream().map(fieldPlan -> fieldPlan.field().getType()).toArray(Class[]::new)
+            );
+            ctor.setAccessible(true);
+            canonicalConstructor = ctor;
+        }
+
+        return ctor;
+    }
+}
@@ -0,0 +1,288 @@
+package deep;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe cache of {@link ClassPlan}s built under one set of {@link CopyRules}, together with
+ * the bare instances source that serves every copy made with them.
+ */
+final class ClassPlans {
+
+    private final CopyRules rules;
+    private final TypesExpert typesExpert = new TypesExpert();
+    private final BareInstancesSource bareInstances = new BareInstancesSource();
+    private final Map<Class<?>, ClassPlan> plans = new ConcurrentHashMap<>();
+
+    ClassPlans(CopyRules rules) {
+        this.rules = rules;
+    }
+
+    CopyRules rules() {
+        return rules;
+    }
+
+    BareInstancesSource bareInstances() {
+        return bareInstances;
+    }
+
+    ClassPlan of(Class<?> clazz) {
+        var plan = plans.get(clazz);
+
+        if (plan == null) {
+            plan = build(clazz);
+            var existing = plans.putIfAbsent(clazz, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Pays upfront what the first copy of the class would otherwise pay: plans it together with every class
+     * reachable through its copied fields, links plans of final field types, looks up constructors and loads
+     * generated copiers. Field types that are interfaces or abstract classes are not followed, since their
+     * runtime classes are unknown. Classes that cannot be prepared are left for the copy to report.
+     *
+     * <p>
+     * No constructor is invoked and no static initializer run, except that of the root when {@code probeRoot} is set:
+     * it is then instantiated once, so that a constructor rejecting default arguments is known before the first copy.
+     * </p>
+     */
+    void prepare(Class<?> root, boolean probeRoot) {
+        var pending = new ArrayDeque<Class<?>>();
+        var seen = new HashSet<Class<?>>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            Class<?> clazz = pending.pop();
+            if (!seen.add(clazz)) {
+                continue;
+            }
+
+            try {
+                ClassPlan plan = of(clazz);
+
+                switch (plan.kind()) {
+                    case ARRAY -> pending.push(clazz.getComponentType());
+                    case PLAIN -> {
+                        if (isConcrete(clazz)) {
+                            if (probeRoot && clazz == root) {
+                                bareInstances.probe(clazz);
+                            } else {
+                                bareInstances.lookUpConstructor(clazz);
+                            }
+                        }
+                        pushFieldTypes(plan, pending);
+                    }
+                    case RECORD -> {
+                        plan.canonicalConstructor();
+                        pushFieldTypes(plan, pending);
+                    }
+                    case CUSTOM -> {
+                        // generated copiers need no field plans, nor the fields made accessible
+                        if (!(plan.copier() instanceof JdkCopiers.JdkCopier)) {
+                            pushDeclaredFieldTypes(clazz, pending);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } catch (RuntimeException | ReflectiveOperationException | LinkageError e) {
+                // the copy itself fails in the same way, and reports where in the graph
+            }
+        }
+    }
+
+    /**
+     * Names of the classes planned so far that are copied rather than reused, sorted.
+     * Feeding them back to {@link #prepare(Class, boolean)} in another process warms it up for the same copies.
+     */
+    Set<String> plannedClassNames() {
+        var names = new TreeSet<String>();
+
+        plans.forEach((clazz, plan) -> {
+            switch (plan.kind()) {
+                case ARRAY, RECORD, PLAIN, CUSTOM -> names.add(clazz.getName());
+                default -> {
+                }
+            }
+        });
+
+        return names;
+    }
+
+    private void pushFieldTypes(ClassPlan plan, ArrayDeque<Class<?>> pending) {
+        for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+            if (fieldPlan.action() != ClassPlan.FieldAction.COPY) {
+                continue;
+            }
+
+            Class<?> type = fieldPlan.field().getType();
+            switch (fieldPlan.dispatch()) {
+                case MONOMORPHIC -> {
+                    fieldPlan.declaredTypePlan(this);
+                    pending.push(type);
+                }
+                case POLYMORPHIC -> {
+                    if (type.isArray() || isConcrete(type)) {
+                        pending.push(type);
+                    }
+                }
+                case ATOMIC -> {
+                }
+            }
+        }
+    }
+
+    private void pushDeclaredFieldTypes(Class<?> clazz, ArrayDeque<Class<?>> pending) {
+        for (Class<?> type : referencedTypes(clazz)) {
+            if (type.isArray() || isConcrete(type)) {
+                pending.push(type);
+            }
+        }
+    }
+
+    private static boolean isConcrete(Class<?> clazz) {
+        return !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers());
+    }
+
+    private ClassPlan build(Class<?> clazz) {
+        if (typesExpert.isAtomic(clazz)) {
+            return new ClassPlan(clazz, ClassPlan.Kind.ATOMIC, List::of, true, false, false, null);
+        }
+
+        var kind = switch (rules.actionForType(clazz)) {
+            case SKIP -> ClassPlan.Kind.SKIPPED;
+            case SHARE -> ClassPlan.Kind.SHARED;
+            case COPY -> clazz.isArray() ? ClassPlan.Kind.ARRAY : clazz.isRecord() ? ClassPlan.Kind.RECORD : ClassPlan.Kind.PLAIN;
+        };
+
+        // JDK internals behind a dedicated copier are neither planned nor made accessible
+        DeepCopier<Object> jdkCopier = kind == ClassPlan.Kind.PLAIN ? JdkCopiers.forClass(clazz) : null;
+
+        Supplier<List<ClassPlan.FieldPlan>> fields = (kind == ClassPlan.Kind.RECORD || kind == ClassPlan.Kind.PLAIN) && jdkCopier == null
+            ? () -> getAllDynamicFields(clazz).stream().map(this::planField).toList()
+            : List::of;
+
+        // records are created only after their components, so they never get into the visited map anyway
+        boolean tracked = (kind == ClassPlan.Kind.ARRAY || kind == ClassPlan.Kind.PLAIN)
+                          && !(rules.isDeclaredTree(clazz) && isAcyclic(clazz));
+
+        boolean atomicElements = kind == ClassPlan.Kind.ARRAY && typesExpert.isAtomic(clazz.getComponentType());
+
+        DeepCopier<Object> copier = jdkCopier != null ? jdkCopier
+            : kind == ClassPlan.Kind.RECORD || kind == ClassPlan.Kind.PLAIN ? generatedCopierFor(clazz) : null;
+        if (copier != null) {
+            kind = ClassPlan.Kind.CUSTOM;
+        }
+
+        return new ClassPlan(clazz, kind, fields, typesExpert.isTransparent(clazz), tracked, atomicElements, copier);
+    }
+
+    /**
+     * Loads the copier generated for a {@link DeepCopyable} class, unless the rules ask for something
+     * the generated code cannot honour. Returns {@code null} when there is none, e.g. when the annotation processor
+     * did not run, so that the class falls back to reflective copying.
+     */
+    private DeepCopier<Object> generatedCopierFor(Class<?> clazz) {
+        if (!clazz.isAnnotationPresent(DeepCopyable.class) || !rules.isHonouredByGeneratedCode(clazz)) {
+            return null;
+        }
+
+        String packagePrefix = clazz.getPackageName().isEmpty() ? "" : clazz.getPackageName() + ".";
+        String copierName = packagePrefix + clazz.getName().substring(packagePrefix.length()).replace('$', '_') + "_DeepCopier";
+
+        try {
+            Class<?> copierClass = Class.forName(copierName, true, clazz.getClassLoader());
+
+            @SuppressWarnings("unchecked")
+            var copier = (DeepCopier<Object>) copierClass.getDeclaredConstructor().newInstance();
+
+            return copier;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether no chain of declared field types leads from the class back to itself, i.e. no cycle can pass
+     * through its instances. Field types that are neither atomic nor final may hold anything at runtime,
+     * so they count as leading everywhere. Fields that are shared or skipped by policy are not followed.
+     */
+    private boolean isAcyclic(Class<?> clazz) {
+        var pending = new ArrayDeque<>(referencedTypes(clazz));
+        var seen = new HashSet<Class<?>>();
+
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.pop();
+
+            if (type == clazz || !(type.isArray() || Modifier.isFinal(type.getModifiers()))) {
+                return false;
+            }
+            if (seen.add(type)) {
+                pending.addAll(referencedTypes(type));
+            }
+        }
+
+        return true;
+    }
+
+    private List<Class<?>> referencedTypes(Class<?> type) {
+        if (typesExpert.isAtomic(type)) {
+            return List.of();
+        } else if (type.isArray()) {
+            return List.of(type.getComponentType());
+        } else {
+            return Stream.iterate(type, cl -> cl != null && cl != Object.class, (Class<?> cl) -> cl.getSuperclass())
+                         .flatMap(cl -> Stream.of(cl.getDeclaredFields()))
+                         .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                         .filter(field -> rules.actionForField(field) == ClassPlan.FieldAction.COPY)
+                         .<Class<?>>map(Field::getType)
+                         .toList();
+        }
+    }
+
+    private ClassPlan.FieldPlan planField(Field field) {
+        Class<?> type = field.getType();
+        Object defaultValue = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+
+        return new ClassPlan.FieldPlan(field, rules.actionForField(field), dispatchFor(type), defaultValue);
+    }
+
+    private ClassPlan.Dispatch dispatchFor(Class<?> declaredType) {
+        if (typesExpert.isAtomic(declaredType)) {
+            return ClassPlan.Dispatch.ATOMIC;
+        }
+
+        // an array of a final (or primitive) component type admits no subtype, unlike Object[] holding a String[]
+        Class<?> innermost = declaredType;
+        while (innermost.isArray()) {
+            innermost = innermost.getComponentType();
+        }
+
+        return innermost.isPrimitive() || Modifier.isFinal(innermost.getModifiers())
+            ? ClassPlan.Dispatch.MONOMORPHIC
+            : ClassPlan.Dispatch.POLYMORPHIC;
+    }
+
+    private static List<Field> getAllDynamicFields(Class<?> topClass) {
+        return Stream.iterate(topClass, cl -> cl != null && cl != Object.class, (Class<?> cl) -> cl.getSuperclass())
+                     .flatMap(cl -> Stream.of(cl.getDeclaredFields()))
+                     .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                     .peek(field -> field.setAccessible(true))
+                     .toList();
+    }
+}
@@ -0,0 +1,101 @@
+package deep;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.stream.Stream;
+
+/**
+ * Lists the classes of a package and its subpackages, as found by a class loader in directories and jar files.
+ * Anonymous, local and synthetic classes are left out, as are classes that fail to load.
+ */
+final class ClassScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader loader;
+
+    ClassScanner(ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    List<Class<?>> classesIn(String packageName) throws IOException {
+        String resourcePrefix = packageName.replace('.', '/');
+        var classNames = new ArrayList<String>();
+
+        for (URL url : Collections.list(loader.getResources(resourcePrefix))) {
+            switch (url.getProtocol()) {
+                case "file" -> classNames.addAll(classNamesInDirectory(url, packageName));
+                case "jar" -> classNames.addAll(classNamesInJar(url, resourcePrefix));
+                default -> {
+                }
+            }
+        }
+
+        var classes = new ArrayList<Class<?>>();
+        for (String className : classNames) {
+            Class<?> clazz = load(className);
+            if (clazz != null && !clazz.isAnonymousClass() && !clazz.isLocalClass() && !clazz.isSynthetic()) {
+                classes.add(clazz);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Loads the class without initializing it, {@code null} if it is not found or fails to link.
+     */
+    Class<?> load(String className) {
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static List<String> classNamesInDirectory(URL url, String packageName) throws IOException {
+        Path root;
+        try {
+            root = Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Malformed class path entry: " + url, e);
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.map(file -> root.relativize(file).toString())
+                        .filter(ClassScanner::isClassFile)
+                        .map(relative -> qualified(packageName, relative.replace(root.getFileSystem().getSeparator(), ".")))
+                        .toList();
+        }
+    }
+
+    private static List<String> classNamesInJar(URL url, String resourcePrefix) throws IOException {
+        var connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+
+        try (var jar = connection.getJarFile()) {
+            return jar.stream()
+                      .map(JarEntry::getName)
+                      .filter(name -> name.startsWith(resourcePrefix + "/") && isClassFile(name))
+                      .map(name -> name.replace('/', '.'))
+                      .map(name -> name.substring(0, name.length() - CLASS_SUFFIX.length()))
+                      .toList();
+        }
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.endsWith("package-info.class") && !name.endsWith("module-info.class");
+    }
+
+    private static String qualified(String packageName, String relativeName) {
+        String simpleName = relativeName.substring(0, relativeName.length() - CLASS_SUFFIX.length());
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+}
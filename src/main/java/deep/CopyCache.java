@@ -0,0 +1,186 @@
+package deep;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of deep copies for sources that rarely change, such as configuration templates and reference data.
+ * The first request for a source records it into a {@link Prototype}, the template; every request, the first included,
+ * returns a fresh copy replayed from the template, so each caller still gets a copy of its own, without the source
+ * graph being traversed again.
+ *
+ * <p>
+ * Sources are told apart by identity and held weakly, so caching a source does not keep it alive, unless it is
+ * reachable from the values its copies share with it, which templates hold. Sources that are not copied at all,
+ * such as strings or instances of types shared by policy, are returned as {@link DeepCopyMaker} would, without a template.
+ * A source that changes in place must either be {@linkplain #invalidate(Object) invalidated} or passed with
+ * a new version stamp, otherwise copies keep reflecting the state it had when its template was taken.
+ * When full, the cache evicts the least recently used template. Thread-safe.
+ * </p>
+ *
+ * <p>
+ * Typical usage:
+ * {@code
+ *     private static final CopyCache TEMPLATES = CopyCache.withMaxEntries(64);
+ *     ...
+ *     Config config = TEMPLATES.copyOf(sharedConfig, sharedConfig.revision());
+ * }
+ * </p>
+ */
+public final class CopyCache {
+
+    private static final long NO_VERSION = 0;
+
+    private final CopyOptions options;
+    private final int maxEntries;
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final Map<SourceKey, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private CopyCache(int maxEntries, CopyOptions options) {
+        this.options = options;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SourceKey, Entry> eldest) {
+                boolean evict = size() > CopyCache.this.maxEntries;
+                if (evict) {
+                    evictions++;
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code maxEntries} is not positive
+     */
+    public static CopyCache withMaxEntries(int maxEntries) {
+        return withMaxEntries(maxEntries, CopyOptions.defaults());
+    }
+
+    /**
+     * @param options options both templates and the copies made from them are made with
+     * @throws IllegalArgumentException if {@code maxEntries} is not positive
+     */
+    public static CopyCache withMaxEntries(int maxEntries, CopyOptions options) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive: " + maxEntries);
+        }
+        return new CopyCache(maxEntries, Objects.requireNonNull(options, "options"));
+    }
+
+    /**
+     * Returns a deep copy of the source as it was when cached.
+     */
+    public <T> T copyOf(T source) {
+        return copyOf(source, NO_VERSION);
+    }
+
+    /**
+     * Returns a deep copy of the source as it was when cached with the same version, taking a new template
+     * when the version differs from the cached one.
+     */
+    public <T> T copyOf(T source, long version) {
+        if (source == null) {
+            return null;
+        }
+        if (!isCopied(source)) {
+            return DeepCopyMaker.deepCopy(source, options);
+        }
+
+        @SuppressWarnings("unchecked")
+        var template = (Prototype<T>) templateOf(source, version);
+
+        return template.newCopy();
+    }
+
+    /**
+     * Drops the template of the source, if any, so that the next copy takes a new one.
+     */
+    public synchronized void invalidate(Object source) {
+        entries.remove(new SourceKey(source, null));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized CopyCacheStats stats() {
+        expungeCollected();
+        return new CopyCacheStats(hits, misses, evictions, entries.size());
+    }
+
+    private Prototype<?> templateOf(Object source, long version) {
+        synchronized (this) {
+            expungeCollected();
+
+            Entry entry = entries.get(new SourceKey(source, null));
+            if (entry != null && entry.version() == version) {
+                hits++;
+                return entry.template();
+            }
+            misses++;
+        }
+
+        // taken outside the lock, a concurrent miss on the same source merely takes an equivalent template
+        Prototype<?> template = DeepCopyMaker.prototype(source, options);
+
+        synchronized (this) {
+            entries.put(new SourceKey(source, collected), new Entry(template, version));
+        }
+        return template;
+    }
+
+    private boolean isCopied(Object source) {
+        return switch (options.plans().of(source.getClass()).kind()) {
+            case ATOMIC, SHARED, SKIPPED -> false;
+            case ARRAY, RECORD, PLAIN, CUSTOM -> true;
+        };
+    }
+
+    private void expungeCollected() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            entries.remove(key);
+        }
+    }
+
+    private record Entry(Prototype<?> template, long version) {}
+
+    /**
+     * Weak reference to a source, equal to any other reference to the same source. Once cleared, it is equal only
+     * to itself, which is enough to remove it from the map when it is polled from the queue.
+     */
+    private static final class SourceKey extends WeakReference<Object> {
+        private final int hash;
+
+        SourceKey(Object source, ReferenceQueue<Object> queue) {
+            super(source, queue);
+            this.hash = System.identityHashCode(source);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof SourceKey key)) {
+                return false;
+            }
+            Object source = get();
+            return source != null && source == key.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package deep;
+
+/**
+ * Snapshot of the counters of a {@link CopyCache}.
+ *
+ * @param hits      copies made from a cached template
+ * @param misses    copies that had to take a new template, because the source was not cached or had a new version
+ * @param evictions templates dropped to keep the cache within its maximum size
+ * @param size      templates currently cached
+ */
+public record CopyCacheStats(long hits, long misses, long evictions, int size) {
+}
@@ -0,0 +1,19 @@
+package deep;
+
+/**
+ * View of an ongoing deep copy, given to a {@link DeepCopier} for the object it copies.
+ */
+public interface CopyContext {
+
+    /**
+     * Returns the copy of a value held by the given field of the object being copied, or by one of its elements
+     * when {@code fieldName} is {@code null}, according to the options and the visited objects of the ongoing copy.
+     */
+    <V> V copyField(V value, String fieldName) throws Exception;
+
+    /**
+     * Registers the copy of the object being copied before its fields are copied,
+     * so that references back to the original resolve to the copy.
+     */
+    void register(Object original, Object copy);
+}
@@ -0,0 +1,85 @@
+package deep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Depth and path limits of a partial deep copy. Outside of the limits, references are shared instead of copied.
+ *
+ * <p>
+ * Depth and paths are counted in user-level steps: a field of a user object is one step, and the elements
+ * of a JDK container or an array are one step denoted {@code [*]}, however many internal objects
+ * (backing arrays, hash nodes, ...) the container keeps in between. Every element is one step, whether
+ * it is a user object, a JDK value such as a date, or a nested container or array, so the cells of a list of lists
+ * are at {@code rows[*][*]}. Internals of a copied container are always copied together with it,
+ * and never end up shared between the original and the copy.
+ * </p>
+ *
+ * @param maxDepth maximal number of steps from the root that is still copied, negative for unlimited
+ * @param paths    parsed path patterns, empty for unlimited; see {@link #parsePath(String)}
+ */
+record CopyLimits(int maxDepth, List<String[]> paths) {
+
+    static final CopyLimits NONE = new CopyLimits(-1, List.of());
+
+    static final String ANY_SEGMENT = "*";
+    static final String ELEMENTS_SEGMENT = "[*]";
+
+    CopyLimits withMaxDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth limit must not be negative: " + depth);
+        }
+        return new CopyLimits(depth, paths);
+    }
+
+    CopyLimits withPaths(String... added) {
+        var result = new ArrayList<>(paths);
+        for (String path : added) {
+            result.add(parsePath(path));
+        }
+        return new CopyLimits(maxDepth, List.copyOf(result));
+    }
+
+    boolean isUnlimited() {
+        return maxDepth < 0 && paths.isEmpty();
+    }
+
+    /**
+     * Returns the scope to start the traversal from, {@link CopyScope#FULL} when nothing is limited.
+     */
+    CopyScope rootScope() {
+        return isUnlimited() ? CopyScope.FULL : CopyScope.beforeRoot(this);
+    }
+
+    /**
+     * Splits a path like {@code lines[*].price} into segments {@code lines}, {@code [*]}, {@code price}.
+     * Paths start at the fields of the root; {@code *} matches any single segment.
+     */
+    static String[] parsePath(String path) {
+        var segments = new ArrayList<String>();
+
+        for (String token : path.split("\\.", -1)) {
+            String name = token;
+            int bracket = token.indexOf('[');
+            if (bracket >= 0) {
+                name = token.substring(0, bracket);
+                String suffix = token.substring(bracket);
+                if (!suffix.replace(ELEMENTS_SEGMENT, "").isEmpty()) {
+                    throw new IllegalArgumentException("Only [*] is supported as element selector, got '%s' in path '%s'".formatted(suffix, path));
+                }
+                if (!name.isEmpty()) {
+                    segments.add(name);
+                }
+                for (int i = 0; i < suffix.length() / ELEMENTS_SEGMENT.length(); i++) {
+                    segments.add(ELEMENTS_SEGMENT);
+                }
+            } else if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty segment in path '%s'".formatted(path));
+            } else {
+                segments.add(name);
+            }
+        }
+
+        return segments.toArray(String[]::new);
+    }
+}
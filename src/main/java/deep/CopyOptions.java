@@ -0,0 +1,297 @@
+package deep;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable configuration of a deep copy. Every {@code with}-style method returns a new instance, leaving
+ * the receiver untouched, so options can be prepared once and shared between threads and call sites.
+ *
+ * <p>
+ * Share/skip policies come from annotations ({@link ShareReference}, {@link SkipCopy}) and from the
+ * programmatic rules configured here. Policies are resolved once per class into its copy plan,
+ * so the subgraphs they exclude are never visited.
+ * </p>
+ *
+ * <p>
+ * Typical usage:
+ * {@code
+ *     var options = CopyOptions.defaults()
+ *                              .sharing(Logger.class, Registry.class)
+ *                              .skippingTransient();
+ *     MyType copy = DeepCopyMaker.deepCopy(original, options);
+ * }
+ * </p>
+ *
+ * <p>
+ * Copy plans are built on first use of a class. Services that must be fast from the first request can build them
+ * at startup instead, with {@link #prepare(Class[])}, {@link #preparePackage(String)}, or by replaying
+ * the classes recorded during a training run:
+ * {@code
+ *     options.savePlannedClasses(Path.of("copy-plans.txt"));   // at the end of the training run
+ *     options.prepareFrom(Path.of("copy-plans.txt"));          // at startup
+ * }
+ * </p>
+ */
+public final class CopyOptions {
+
+    private static final CopyOptions DEFAULTS = withFreshPlans();
+
+    private final ClassPlans plans;
+    private final CopyLimits limits;
+    private final TraversalOrder order;
+    // null unless the order is picked per root class
+    private final AdaptiveSelector selector;
+    private final int sharingWindow;
+
+    private CopyOptions(ClassPlans plans, CopyLimits limits, TraversalOrder order, AdaptiveSelector selector, int sharingWindow) {
+        this.plans = plans;
+        this.limits = limits;
+        this.order = order;
+        this.selector = selector;
+        this.sharingWindow = sharingWindow;
+    }
+
+    public static CopyOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * The default options, but with plans of their own rather than those shared by every user of {@link #defaults()},
+     * for tests that watch classes being planned.
+     */
+    static CopyOptions withFreshPlans() {
+        return new CopyOptions(new ClassPlans(CopyRules.NONE), CopyLimits.NONE, TraversalOrder.DEPTH_FIRST, null, 1);
+    }
+
+    /**
+     * Values that are instances of any of the given types are shared with the copy instead of being copied.
+     */
+    public CopyOptions sharing(Class<?>... types) {
+        return withRules(plans.rules().withSharedTypes(types));
+    }
+
+    /**
+     * Values that are instances of any of the given types are replaced with {@code null} in the copy.
+     */
+    public CopyOptions skipping(Class<?>... types) {
+        return withRules(plans.rules().withSkippedTypes(types));
+    }
+
+    /**
+     * The value of the named field declared in {@code owner} is shared with the copy instead of being copied.
+     *
+     * @throws IllegalArgumentException if {@code owner} declares no such field
+     */
+    public CopyOptions sharingField(Class<?> owner, String fieldName) {
+        return withRules(plans.rules().withSharedField(declaredField(owner, fieldName)));
+    }
+
+    /**
+     * The named field declared in {@code owner} receives its default value in the copy.
+     *
+     * @throws IllegalArgumentException if {@code owner} declares no such field
+     */
+    public CopyOptions skippingField(Class<?> owner, String fieldName) {
+        return withRules(plans.rules().withSkippedField(declaredField(owner, fieldName)));
+    }
+
+    /**
+     * Fields marked {@code transient} receive their default value in the copy.
+     * Not enabled by default, because many JDK collections keep their contents in transient fields.
+     */
+    public CopyOptions skippingTransient() {
+        return withRules(plans.rules().withSkipTransient());
+    }
+
+    /**
+     * Declares that instances of the given types are never shared within a copied graph, in addition to
+     * the types annotated with {@link TreeShaped}. Such instances skip the identity bookkeeping that preserves
+     * shared references, provided their declared field types rule out cycles through them.
+     */
+    public CopyOptions assumingTree(Class<?>... types) {
+        return withRules(plans.rules().withTreeTypes(types));
+    }
+
+    /**
+     * Declares the whole copied graph free of shared references, as if every type was {@link TreeShaped}.
+     * Identity bookkeeping remains only for types that could take part in a cycle.
+     */
+    public CopyOptions assumingTree() {
+        return withRules(plans.rules().withAssumeTree());
+    }
+
+    /**
+     * Copies only down to the given depth and shares everything deeper: {@code 0} copies the root alone,
+     * {@code 1} also copies the objects its fields refer to, and so on. Elements of collections and arrays are
+     * one level below the collection, whose internals are always copied together with it. An object copied
+     * already is referred to by its copy at any depth, so cycles back into the copied part stay within the copy.
+     *
+     * @throws IllegalArgumentException if the depth is negative
+     */
+    public CopyOptions limitedToDepth(int maxDepth) {
+        return new CopyOptions(plans, limits.withMaxDepth(maxDepth), order, selector, sharingWindow);
+    }
+
+    /**
+     * Copies only the objects on the given paths, and the whole subgraphs the paths end at, sharing everything else.
+     * Paths start at the fields of the root and use {@code [*]} for the elements of collections and arrays,
+     * e.g. {@code lines[*].price}; a {@code *} segment matches any single field or {@code [*]}.
+     * When combined with {@link #limitedToDepth(int)}, both limits apply.
+     *
+     * @throws IllegalArgumentException if a path is malformed
+     */
+    public CopyOptions limitedToPaths(String... paths) {
+        return new CopyOptions(plans, limits.withPaths(paths), order, selector, sharingWindow);
+    }
+
+    /**
+     * Allocates the copies in the given order, see {@link TraversalOrder}. Turns off {@link #adaptive()} selection.
+     */
+    public CopyOptions traversing(TraversalOrder order) {
+        return new CopyOptions(plans, limits, Objects.requireNonNull(order, "order"), null, sharingWindow);
+    }
+
+    /**
+     * Lets {@link DeepCopyMaker#deepCopy(Object, CopyOptions)} pick the traversal order for each root class from
+     * the copies made so far: every order is tried a few times, each copy being timed together with a walk over it,
+     * which stands for reading the copy and is where the layouts of the orders differ; then the cheapest order is used,
+     * without walks, and the choice is re-evaluated periodically. Graphs without arrays or collections are copied
+     * depth-first. The copies are the same whatever the order, see {@link TraversalOrder}.
+     * Options derived from the returned ones share its statistics, which {@link #adaptiveDecisions()} exposes.
+     * Copies of streams keep the order configured with {@link #traversing(TraversalOrder)}.
+     */
+    public CopyOptions adaptive() {
+        return new CopyOptions(plans, limits, order, new AdaptiveSelector(), sharingWindow);
+    }
+
+    /**
+     * Current decisions of {@link #adaptive()} selection, per root class, empty when it is not enabled.
+     */
+    public Map<Class<?>, AdaptiveDecision> adaptiveDecisions() {
+        return selector == null ? Map.of() : selector.decisions();
+    }
+
+    /**
+     * Lets the copies of up to {@code elements} consecutive elements of a stream or iterator share what they reference,
+     * see {@link DeepCopyMaker#copyStream(java.util.stream.Stream, CopyOptions)}: an object referenced by several elements
+     * of a window is copied once for all of them. The default of {@code 1} copies every element on its own.
+     * Objects copied within a window are kept until it ends, so the window bounds the memory held by the copying.
+     *
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public CopyOptions sharingAcross(int elements) {
+        if (elements < 1) {
+            throw new IllegalArgumentException("Sharing window must be positive: " + elements);
+        }
+        return new CopyOptions(plans, limits, order, selector, elements);
+    }
+
+    /**
+     * Builds the copy plans of the given classes and of every class reachable through their fields,
+     * so that the first copies made with these options do not pay for it. Each of the given classes is instantiated
+     * once, as a copy would do, so that a constructor rejecting default arguments is known upfront; the classes
+     * reached through fields only have their constructors looked up.
+     *
+     * @return these options
+     */
+    public CopyOptions prepare(Class<?>... types) {
+        for (Class<?> type : types) {
+            plans.prepare(type, true);
+        }
+        return this;
+    }
+
+    /**
+     * Prepares every class of the named package and its subpackages, see {@link #prepare(Class[])}.
+     * Scanned classes are planned without being instantiated or initialized, since many of them are never copied.
+     *
+     * @return these options
+     * @throws IOException if the class path cannot be read
+     */
+    public CopyOptions preparePackage(String packageName) throws IOException {
+        for (Class<?> type : new ClassScanner(classLoader()).classesIn(packageName)) {
+            plans.prepare(type, false);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the names of the classes copied with these options so far, one per line, for {@link #prepareFrom(Path)}.
+     * Plans are kept per set of share/skip/tree rules, so options derived with other rules record separately.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void savePlannedClasses(Path file) throws IOException {
+        Files.write(file, plans.plannedClassNames());
+    }
+
+    /**
+     * Prepares the classes listed in a file written by {@link #savePlannedClasses(Path)}.
+     * Names of classes that are no longer found are ignored, as are blank lines and lines starting with {@code #}.
+     * As with {@link #preparePackage(String)}, the listed classes are neither instantiated nor initialized.
+     *
+     * @return the number of classes prepared
+     * @throws IOException if the file cannot be read
+     */
+    public int prepareFrom(Path file) throws IOException {
+        var scanner = new ClassScanner(classLoader());
+        int prepared = 0;
+
+        for (String line : Files.readAllLines(file)) {
+            String className = line.strip();
+            if (className.isEmpty() || className.startsWith("#")) {
+                continue;
+            }
+
+            Class<?> type = scanner.load(className);
+            if (type != null) {
+                plans.prepare(type, false);
+                prepared++;
+            }
+        }
+
+        return prepared;
+    }
+
+    ClassPlans plans() {
+        return plans;
+    }
+
+    CopyLimits limits() {
+        return limits;
+    }
+
+    TraversalOrder order() {
+        return order;
+    }
+
+    AdaptiveSelector selector() {
+        return selector;
+    }
+
+    int sharingWindow() {
+        return sharingWindow;
+    }
+
+    private CopyOptions withRules(CopyRules rules) {
+        return new CopyOptions(new ClassPlans(rules), limits, order, selector, sharingWindow);
+    }
+
+    private static ClassLoader classLoader() {
+        var contextLoader = Thread.currentThread().getContextClassLoader();
+        return contextLoader != null ? contextLoader : CopyOptions.class.getClassLoader();
+    }
+
+    private static Field declaredField(Class<?> owner, String fieldName) {
+        try {
+            return owner.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("No field '%s' declared in %s".formatted(fieldName, owner.getName()), e);
+        }
+    }
+}
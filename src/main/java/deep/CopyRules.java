@@ -0,0 +1,139 @@
+package deep;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of share/skip policies. Resolves annotations ({@link ShareReference}, {@link SkipCopy}),
+ * the {@code transient} modifier and programmatic rules into a single decision per field or per type.
+ * Precedence: field-level decisions win over type-level ones, and skipping wins over sharing.
+ * Also holds the tree-shape declarations ({@link TreeShaped} and programmatic ones).
+ */
+record CopyRules(
+    Set<Class<?>> sharedTypes,
+    Set<Class<?>> skippedTypes,
+    Set<Field> sharedFields,
+    Set<Field> skippedFields,
+    boolean skipTransient,
+    Set<Class<?>> treeTypes,
+    boolean assumeTree
+) {
+    static final CopyRules NONE = new CopyRules(Set.of(), Set.of(), Set.of(), Set.of(), false, Set.of(), false);
+
+    CopyRules withSharedTypes(Class<?>... types) {
+        return new CopyRules(union(sharedTypes, List.of(types)), skippedTypes, sharedFields, skippedFields, skipTransient, treeTypes, assumeTree);
+    }
+
+    CopyRules withSkippedTypes(Class<?>... types) {
+        return new CopyRules(sharedTypes, union(skippedTypes, List.of(types)), sharedFields, skippedFields, skipTransient, treeTypes, assumeTree);
+    }
+
+    CopyRules withSharedField(Field field) {
+        return new CopyRules(sharedTypes, skippedTypes, union(sharedFields, List.of(field)), skippedFields, skipTransient, treeTypes, assumeTree);
+    }
+
+    CopyRules withSkippedField(Field field) {
+        return new CopyRules(sharedTypes, skippedTypes, sharedFields, union(skippedFields, List.of(field)), skipTransient, treeTypes, assumeTree);
+    }
+
+    CopyRules withSkipTransient() {
+        return new CopyRules(sharedTypes, skippedTypes, sharedFields, skippedFields, true, treeTypes, assumeTree);
+    }
+
+    CopyRules withTreeTypes(Class<?>... types) {
+        return new CopyRules(sharedTypes, skippedTypes, sharedFields, skippedFields, skipTransient, union(treeTypes, List.of(types)), assumeTree);
+    }
+
+    CopyRules withAssumeTree() {
+        return new CopyRules(sharedTypes, skippedTypes, sharedFields, skippedFields, skipTransient, treeTypes, true);
+    }
+
+    /**
+     * Whether instances of the given class are declared never to be shared, see {@link TreeShaped}.
+     */
+    boolean isDeclaredTree(Class<?> clazz) {
+        return assumeTree || isMarked(clazz, TreeShaped.class, treeTypes);
+    }
+
+    /**
+     * Whether code generated for the class at compile time honours these rules: it knows the annotations,
+     * but neither programmatic field rules nor the transient policy.
+     */
+    boolean isHonouredByGeneratedCode(Class<?> clazz) {
+        for (Class<?> cl = clazz; cl != null; cl = cl.getSuperclass()) {
+            for (Field field : cl.getDeclaredFields()) {
+                boolean ruled = sharedFields.contains(field) || skippedFields.contains(field)
+                                || (skipTransient && Modifier.isTransient(field.getModifiers()));
+                if (ruled) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decides how values of the given runtime (or declared) type are treated, regardless of where they are referenced from.
+     */
+    ClassPlan.FieldAction actionForType(Class<?> clazz) {
+        if (isMarked(clazz, SkipCopy.class, skippedTypes)) {
+            return ClassPlan.FieldAction.SKIP;
+        } else if (isMarked(clazz, ShareReference.class, sharedTypes)) {
+            return ClassPlan.FieldAction.SHARE;
+        } else {
+            return ClassPlan.FieldAction.COPY;
+        }
+    }
+
+    /**
+     * Decides how the value held by the given field is treated. A {@link ClassPlan.FieldAction#COPY} answer
+     * still leaves room for a type-level decision on the runtime class of the value.
+     */
+    ClassPlan.FieldAction actionForField(Field field) {
+        if (field.isAnnotationPresent(SkipCopy.class) || skippedFields.contains(field)) {
+            return ClassPlan.FieldAction.SKIP;
+        } else if (field.isAnnotationPresent(ShareReference.class) || sharedFields.contains(field)) {
+            return ClassPlan.FieldAction.SHARE;
+        } else if (skipTransient && Modifier.isTransient(field.getModifiers())) {
+            return ClassPlan.FieldAction.SKIP;
+        } else if (field.getType().isPrimitive()) {
+            return ClassPlan.FieldAction.COPY;
+        } else {
+            return actionForType(field.getType());
+        }
+    }
+
+    private static boolean isMarked(Class<?> clazz, Class<? extends Annotation> annotation, Set<Class<?>> ruledTypes) {
+        for (Class<?> ruled : ruledTypes) {
+            if (ruled.isAssignableFrom(clazz)) {
+                return true;
+            }
+        }
+        return isAnnotatedInHierarchy(clazz, annotation);
+    }
+
+    private static boolean isAnnotatedInHierarchy(Class<?> clazz, Class<? extends Annotation> annotation) {
+        if (clazz == null) {
+            return false;
+        }
+        if (clazz.isAnnotationPresent(annotation)) {
+            return true;
+        }
+        for (Class<?> implemented : clazz.getInterfaces()) {
+            if (isAnnotatedInHierarchy(implemented, annotation)) {
+                return true;
+            }
+        }
+        return isAnnotatedInHierarchy(clazz.getSuperclass(), annotation);
+    }
+
+    private static <E> Set<E> union(Set<E> existing, List<E> added) {
+        var result = new HashSet<>(existing);
+        result.addAll(added);
+        return Set.copyOf(result);
+    }
+}
@@ -0,0 +1,132 @@
+package deep;
+
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Position of a node within the limits of a partial deep copy, see {@link CopyLimits}.
+ * Scopes are immutable; a new one is derived for every node entered while limits are in effect,
+ * and the shared {@link #FULL} scope is used for the whole traversal when they are not.
+ */
+final class CopyScope {
+
+    static final CopyScope FULL = new CopyScope(null, 0, null, false, false, false);
+
+    private static final int DEAD = -1;
+
+    private final CopyLimits limits;
+    private final int depth;
+    private final int[] progress;
+    private final boolean transparent;
+    // whether the node is a link of a JDK structure, such as a hash map entry, whose values are elements
+    private final boolean structureNode;
+    private final boolean shared;
+
+    private CopyScope(CopyLimits limits, int depth, int[] progress, boolean transparent, boolean structureNode, boolean shared) {
+        this.limits = limits;
+        this.depth = depth;
+        this.progress = progress;
+        this.transparent = transparent;
+        this.structureNode = structureNode;
+        this.shared = shared;
+    }
+
+    static CopyScope beforeRoot(CopyLimits limits) {
+        return new CopyScope(limits, -1, new int[limits.paths().size()], false, false, false);
+    }
+
+    /**
+     * Whether the node of this scope lies outside the limits and must be shared instead of copied.
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Derives the scope of a child node reached from the node of this scope.
+     * Entering an element slot of an array or of a dedicated copier is a {@code [*]} step, whatever the element,
+     * unless the element is a link of a JDK structure. Fields of JDK classes are steps only when they hold
+     * an element: a user object, a JDK value such as a date, or a container held by a structure link,
+     * such as a list stored in a map; the structure itself, arrays, links and wrapped containers, takes no step.
+     *
+     * @param fieldName name of the field holding the child, {@code null} for array and copier elements
+     * @param childPlan plan of the child's class
+     */
+    CopyScope enter(String fieldName, ClassPlan childPlan) {
+        if (limits == null) {
+            return this;
+        }
+
+        Class<?> childType = childPlan.type();
+        boolean childStructureNode = isStructureNode(childPlan);
+
+        String segment;
+        if (depth < 0) {
+            segment = null;
+        } else if (fieldName == null) {
+            segment = childStructureNode ? null : CopyLimits.ELEMENTS_SEGMENT;
+        } else if (!transparent) {
+            segment = fieldName;
+        } else if (childPlan.isTransparent()
+                   && (childType.isArray() || childStructureNode || isContainer(childType) && !structureNode)) {
+            segment = null;
+        } else {
+            segment = CopyLimits.ELEMENTS_SEGMENT;
+        }
+
+        int childDepth = depth < 0 ? 0 : segment == null ? depth : depth + 1;
+        int[] childProgress = segment == null ? progress : advance(segment);
+
+        return new CopyScope(limits, childDepth, childProgress, childPlan.isTransparent(), childStructureNode, isOutside(childDepth, childProgress));
+    }
+
+    private static boolean isContainer(Class<?> type) {
+        return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Whether instances are links of a JDK structure, such as hash map entries or linked list nodes:
+     * non-public JDK classes that are neither arrays nor containers themselves.
+     */
+    private static boolean isStructureNode(ClassPlan plan) {
+        Class<?> type = plan.type();
+        return plan.isTransparent() && !type.isArray() && !Modifier.isPublic(type.getModifiers()) && !isContainer(type);
+    }
+
+    private int[] advance(String segment) {
+        int[] next = progress.clone();
+
+        for (int i = 0; i < next.length; i++) {
+            String[] path = limits.paths().get(i);
+            int matched = next[i];
+
+            if (matched == DEAD || matched == path.length) {
+                continue;
+            }
+
+            String expected = path[matched];
+            next[i] = expected.equals(segment) || expected.equals(CopyLimits.ANY_SEGMENT) ? matched + 1 : DEAD;
+        }
+
+        return next;
+    }
+
+    private boolean isOutside(int nodeDepth, int[] nodeProgress) {
+        if (limits.maxDepth() >= 0 && nodeDepth > limits.maxDepth()) {
+            return true;
+        }
+
+        if (nodeProgress.length == 0) {
+            return false;
+        }
+
+        for (int matched : nodeProgress) {
+            if (matched != DEAD) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package deep;
+
+/**
+ * Dedicated copier of one class, used by {@link DeepCopyMaker} instead of reflection.
+ * Implementations are generated for classes annotated with {@link DeepCopyable}.
+ *
+ * @param <T> the copied class
+ */
+public interface DeepCopier<T> {
+
+    /**
+     * Creates a deep copy of the given non-null object. Copies of referenced objects must be obtained
+     * from the context, which keeps the cycle, sharing and limit semantics of the ongoing copy.
+     */
+    T copy(T original, CopyContext context) throws Exception;
+}
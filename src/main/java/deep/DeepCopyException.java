@@ -0,0 +1,174 @@
+package deep;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Failure of a deep copy, telling where in the graph it happened: the path from the root to the offending object,
+ * such as {@code root.orders[17].customer.address}, its class, and the ways of instantiating it that were tried.
+ * Also thrown, with the same details, when replaying a {@link Prototype} or comparing and hashing graphs
+ * with {@link DeepEquality} fails.
+ * The message is made of class names, field names and indices only, never of the {@code toString()} of copied objects,
+ * which may be huge, cyclic, or failing themselves.
+ *
+ * <p>
+ * In paths, {@code [17]} stands for an index in an array, including the array backing a JDK collection,
+ * and {@code [*]} for an element handed to a dedicated copier, or whose position is not known.
+ * The internals of JDK classes are left out, as in {@link CopyLimits} paths.
+ * The path is collected while the failure propagates back to the root, so copies that succeed pay nothing for it.
+ * </p>
+ */
+public final class DeepCopyException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String ELEMENTS_SEGMENT = CopyLimits.ELEMENTS_SEGMENT;
+    // stands for a part of the path that could not be found
+    static final String UNKNOWN_SEGMENT = "?";
+
+    private final String reason;
+    private final Class<?> failingClass;
+    // serializable types rather than lists, the exception being serializable
+    private final String[] instantiationAttempts;
+    // field names (String) and indices (Integer), from the offending object up to the root
+    private final ArrayList<Object> reversedSegments = new ArrayList<>();
+
+    private Class<?> rootClass;
+    // what was being done to the graph, completing "Unable to ..."
+    private String operation = "make deep copy of";
+
+    /**
+     * @param reason                description of the failure, {@code null} to describe the cause instead
+     * @param failingClass          class of the offending object, {@code null} if unknown
+     * @param instantiationAttempts ways of instantiating the offending object that were tried, in order
+     */
+    DeepCopyException(String reason, Class<?> failingClass, List<String> instantiationAttempts, Throwable cause) {
+        super(cause);
+        this.reason = reason;
+        this.failingClass = failingClass;
+        this.instantiationAttempts = instantiationAttempts.toArray(String[]::new);
+    }
+
+    DeepCopyException(Class<?> failingClass, Throwable cause) {
+        this(null, failingClass, List.of(), cause);
+    }
+
+    /**
+     * Path from the root to the offending object, e.g. {@code root.orders[17].customer.address}.
+     */
+    public String getPath() {
+        var path = new StringBuilder("root");
+
+        for (int i = reversedSegments.size() - 1; i >= 0; i--) {
+            Object segment = reversedSegments.get(i);
+            if (segment instanceof Integer index) {
+                path.append('[').append(index).append(']');
+            } else if (segment.equals(ELEMENTS_SEGMENT)) {
+                path.append(ELEMENTS_SEGMENT);
+            } else {
+                path.append('.').append(segment);
+            }
+        }
+
+        return path.toString();
+    }
+
+    /**
+     * Class of the offending object, {@code null} if unknown.
+     */
+    public Class<?> getFailingClass() {
+        return failingClass;
+    }
+
+    /**
+     * Ways of instantiating the offending object that were tried, in order, each with its outcome.
+     * Empty when the failure did not come from instantiation.
+     */
+    public List<String> getInstantiationAttempts() {
+        return List.of(instantiationAttempts);
+    }
+
+    /**
+     * Class of the root of the copied graph, {@code null} if unknown.
+     */
+    public Class<?> getRootClass() {
+        return rootClass;
+    }
+
+    @Override
+    public String getMessage() {
+        var message = new StringBuilder("Unable to ").append(operation).append(' ')
+            .append(rootClass == null ? "object" : rootClass.getName())
+            .append(": ").append(reason != null ? reason : describe(getCause()))
+            .append(" at ").append(getPath());
+
+        if (failingClass != null) {
+            message.append(" (").append(failingClass.getName()).append(')');
+        }
+        if (instantiationAttempts.length > 0) {
+            message.append("; tried ").append(String.join(", then ", instantiationAttempts));
+        }
+
+        return message.toString();
+    }
+
+    DeepCopyException withinField(String fieldName) {
+        reversedSegments.add(fieldName);
+        return this;
+    }
+
+    DeepCopyException withinElement(int index) {
+        reversedSegments.add(index);
+        return this;
+    }
+
+    DeepCopyException withinElements() {
+        reversedSegments.add(ELEMENTS_SEGMENT);
+        return this;
+    }
+
+    /**
+     * @param segments path from the root, made of field names, indices and {@link #ELEMENTS_SEGMENT}
+     */
+    DeepCopyException withinPath(List<Object> segments) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            reversedSegments.add(segments.get(i));
+        }
+        return this;
+    }
+
+    DeepCopyException fromRoot(Class<?> rootClass) {
+        this.rootClass = rootClass;
+        return this;
+    }
+
+    /**
+     * @param operation what was being done to the graph, e.g. {@code compare}, to be told instead of copying
+     */
+    DeepCopyException during(String operation) {
+        this.operation = operation;
+        return this;
+    }
+
+    /**
+     * Describes an attempt to instantiate a class through the constructor with the given parameter types,
+     * e.g. {@code Order(String, int) with default arguments: java.lang.NullPointerException}.
+     */
+    static String attempt(Class<?> type, Class<?>[] parameterTypes, String arguments, Throwable outcome) {
+        String parameters = Stream.of(parameterTypes).map(Class::getSimpleName).collect(Collectors.joining(", "));
+        return "%s(%s) with %s: %s".formatted(type.getSimpleName(), parameters, arguments, describe(outcome));
+    }
+
+    private static String describe(Throwable failure) {
+        if (failure instanceof InvocationTargetException invocation && invocation.getCause() != null) {
+            failure = invocation.getCause();
+        }
+        if (failure == null) {
+            return "unknown failure";
+        }
+        return failure.getMessage() == null ? failure.getClass().getName() : failure.getClass().getName() + ": " + failure.getMessage();
+    }
+}
@@ -3,12 +3,16 @@ package deep;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class for performing deep copies of objects, supporting arrays, records, and regular POJOs.
@@ -20,8 +24,19 @@ import java.util.stream.Stream;
  * <ul>
  *   <li>Supports primitive arrays and object arrays</li>
  *   <li>Handles Java records using canonical constructors</li>
+ *   <li>Uses copiers generated at compile time for {@link DeepCopyable} classes, ahead of reflection</li>
  *   <li>Uses fallback instantiation strategy for non-records via reflection</li>
  *   <li>Prevents excessive recursion via a configurable object graph size limit</li>
+ *   <li>Allocates copies depth-first, breadth-first or siblings-first, see {@link TraversalOrder},
+ *       optionally picking the order per root class from the measured cost of copying and reading its copies</li>
+ *   <li>Skips identity bookkeeping for records and for types declared {@link TreeShaped} that cannot form cycles</li>
+ *   <li>Copies long chains, such as linked lists, without overflowing the thread stack</li>
+ *   <li>Optionally copies only down to a depth or along selected field paths, sharing the rest</li>
+ *   <li>Records graphs into prototypes that replay copies without traversal, see {@link Prototype}</li>
+ *   <li>Copies streams and iterators lazily, element by element, with flat memory use</li>
+ *   <li>Builds per-class copy plans once, optionally ahead of the first copy, see {@link CopyOptions#prepare(Class[])}</li>
+ *   <li>Shares or skips fields and types by annotation or by {@link CopyOptions} rules, without visiting them</li>
+ *   <li>Reports failures with the path to the offending object, see {@link DeepCopyException}</li>
  * </ul>
  * </p>
  *
@@ -43,49 +58,251 @@ import java.util.stream.Stream;
 public class DeepCopyMaker {
 
     // guard against excessive recursion
-    private static final int MAX_OBJECT_GRAPH_SIZE = 3000;
+    static final int MAX_OBJECT_GRAPH_SIZE = 3000;
+    // deeper copies are filled from the work queue, which keeps the thread stack use bounded
+    static final int MAX_RECURSION_DEPTH = 128;
 
-    private final TypesExpert typesExpert;
-    private final BareInstancesSource bareInstancesSource = new BareInstancesSource();
+    private final CopyOptions options;
+    private final ClassPlans plans;
     private final Map<Object, Object> visited = new IdentityHashMap<>();
+    private final WorkQueue workQueue;
 
     private int currentItemsCount = 0;
+    // plain objects and arrays being filled on the stack
+    private int depth = 0;
+    // element slots of arrays and collections filled, the shape of the graph recorded by adaptive copying
+    private int elementSlotsCount = 0;
+    // constructors whose arguments are being copied; their arguments are always complete, so never queued
+    private int constructorsPending = 0;
+    // elements copied since the visited map was last cleared, when copying a stream
+    private int elementsInWindow = 0;
 
-    private DeepCopyMaker() {
-        this.typesExpert = new TypesExpert();
+    private DeepCopyMaker(CopyOptions options) {
+        this(options, options.order());
+    }
+
+    private DeepCopyMaker(CopyOptions options, TraversalOrder order) {
+        this.options = options;
+        this.plans = options.plans();
+        this.workQueue = new WorkQueue(order);
     }
 
     public static <T> T deepCopy(T original) {
+        return deepCopy(original, CopyOptions.defaults());
+    }
+
+    /**
+     * Builds ahead of time what the first copies of the given classes would build, for copies made with
+     * the default options; see {@link CopyOptions#prepare(Class[])} for other options.
+     */
+    public static void prepare(Class<?>... types) {
+        CopyOptions.defaults().prepare(types);
+    }
+
+    public static <T> T deepCopy(T original, CopyOptions options) {
         try {
-            return original == null ? null : new DeepCopyMaker().makeCopyRecursive(original);
+            if (original == null) {
+                return null;
+            } else if (options.selector() != null) {
+                return copyAdaptively(original, options, options.selector());
+            } else {
+                return new DeepCopyMaker(options).copyRoot(original, options.limits().rootScope());
+            }
         } catch (Exception e) {
-            throw new IllegalStateException("Unable to make deep copy of %s".formatted(original), e);
+            throw failureOf(original, e);
         }
     }
 
-    private <T> T makeCopyRecursive(T original) throws Exception {
-        if (currentItemsCount++ > MAX_OBJECT_GRAPH_SIZE) {
-            throw new IllegalStateException("Maximum copy size (%s) exceeded. Context: %s.".formatted(MAX_OBJECT_GRAPH_SIZE, original));
+    /**
+     * Turns a failure to copy the root into a {@link DeepCopyException} telling the root's class.
+     */
+    static DeepCopyException failureOf(Object original, Exception e) {
+        var failure = e instanceof DeepCopyException known ? known : new DeepCopyException(original.getClass(), e);
+        return failure.fromRoot(original.getClass());
+    }
+
+    private static <T> T copyAdaptively(T original, CopyOptions options, AdaptiveSelector selector) throws Exception {
+        Class<?> rootClass = original.getClass();
+        TraversalOrder order = selector.orderFor(rootClass);
+        var maker = new DeepCopyMaker(options, order);
+
+        long start = System.nanoTime();
+        T copy = maker.copyRoot(original, options.limits().rootScope());
+        long nanos = System.nanoTime() - start;
+
+        long scanNanos = selector.scans(rootClass) ? AdaptiveSelector.scanNanos(copy, options) : -1;
+        selector.record(rootClass, order, nanos, scanNanos, maker.currentItemsCount, maker.elementSlotsCount);
+
+        return copy;
+    }
+
+    /**
+     * Records the graph into a {@link Prototype}, which then makes deep copies of it much faster than
+     * {@link #deepCopy(Object, CopyOptions)} would, when many copies of the same graph are needed.
+     */
+    public static <T> Prototype<T> prototype(T root, CopyOptions options) {
+        return Prototype.record(root, options);
+    }
+
+    public static <T> Prototype<T> prototype(T root) {
+        return prototype(root, CopyOptions.defaults());
+    }
+
+    /**
+     * Copies the elements of the stream lazily, as they are pulled from the returned stream, which is parallel if
+     * the source is. Each element is copied as if by {@link #deepCopy(Object, CopyOptions)}, but plans and the copying
+     * state are set up once per stream, or once per split of a parallel stream, rather than once per element.
+     * Memory held by the copying does not grow with the length of the stream; see {@link CopyOptions#sharingAcross(int)}
+     * to let nearby elements share copies. Closing the returned stream closes the source.
+     * An element that cannot be copied fails with a {@link DeepCopyException}; the next ones can still be pulled,
+     * and share no copies with it.
+     */
+    public static <T> Stream<T> copyStream(Stream<T> source, CopyOptions options) {
+        var copies = new CopyingSpliterator<>(source.spliterator(), options);
+        return StreamSupport.stream(copies, source.isParallel()).onClose(source::close);
+    }
+
+    public static <T> Stream<T> copyStream(Stream<T> source) {
+        return copyStream(source, CopyOptions.defaults());
+    }
+
+    /**
+     * Copies the elements of the iterator lazily, as they are pulled, in the same way as {@link #copyStream(Stream, CopyOptions)}.
+     */
+    public static <T> Iterator<T> copyIterator(Iterator<T> source, CopyOptions options) {
+        return Spliterators.iterator(new CopyingSpliterator<>(Spliterators.spliteratorUnknownSize(source, 0), options));
+    }
+
+    public static <T> Iterator<T> copyIterator(Iterator<T> source) {
+        return copyIterator(source, CopyOptions.defaults());
+    }
+
+    /**
+     * Copies one element of a stream, reusing the state left by the previous ones.
+     */
+    private <T> T copyElement(T original) {
+        if (elementsInWindow == options.sharingWindow()) {
+            visited.clear();
+            elementsInWindow = 0;
+        }
+        elementsInWindow++;
+        currentItemsCount = 0;
+
+        try {
+            return original == null ? null : copyRoot(original, options.limits().rootScope());
+        } catch (Exception e) {
+            // the copies of a failed element may be incomplete: none of them is to be shared or filled by later elements
+            visited.clear();
+            workQueue.clear();
+            elementsInWindow = 0;
+            throw failureOf(original, e);
+        }
+    }
+
+    private <T> T copyRoot(T original, CopyScope rootScope) throws Exception {
+        T copy = makeCopyRecursive(original, null, rootScope, null);
+
+        WorkQueue.Task task;
+        while ((task = workQueue.poll()) != null) {
+            try {
+                fill(task);
+            } catch (Exception e) {
+                var failure = e instanceof DeepCopyException known ? known : new DeepCopyException(task.plan().type(), e);
+                throw failure.withinPath(new GraphPaths(plans).pathTo(original, task.original()));
+            }
         }
 
+        return copy;
+    }
+
+    /**
+     * @param knownPlan   plan of the value's class when it is known in advance from a final declared type,
+     *                    {@code null} to look it up by the runtime class
+     * @param parentScope scope of the object holding {@code original}
+     * @param fieldName   name of the field holding {@code original}, {@code null} for the root and array elements
+     */
+    private <T> T makeCopyRecursive(T original, ClassPlan knownPlan, CopyScope parentScope, String fieldName) throws Exception {
+        guardGraphSize(original);
+
         if (original == null) {
             return null;
         }
 
-        Class<?> clazz = original.getClass();
-
         Object result;
+        // failures are described here, where the offending object is known, and located on the way back to the root
+        try {
+            ClassPlan plan = knownPlan != null ? knownPlan : plans.of(original.getClass());
 
-        if (typesExpert.isAtomic(clazz)) {
-            result = original;
-        } else if (visited.containsKey(original)) {
-            result = visited.get(original);
-        } else if (clazz.isArray()) {
-            result = copyArray(original, clazz.getComponentType());
-        } else if (clazz.isRecord()) {
-            result = copyViaCanonicalCtor(original, clazz);
-        } else {
-            result = copyPlainObject(original, clazz);
+            result = switch (plan.kind()) {
+                case ATOMIC, SHARED -> original;
+                case SKIPPED -> null;
+                case ARRAY, RECORD, PLAIN, CUSTOM -> {
+                    // an object copied already is referenced by its copy even beyond the limits, so cycles stay in the copy
+                    Object known = plan.isTracked() ? visited.get(original) : null;
+                    if (known != null) {
+                        if (constructorsPending > 0) {
+                            // an argument of a constructor must be complete, even if it was queued before
+                            WorkQueue.Task task = workQueue.take(original);
+                            if (task != null) {
+                                fill(task);
+                            }
+                        }
+                        yield known;
+                    }
+
+                    CopyScope scope = parentScope.enter(fieldName, plan);
+                    if (scope.isShared()) {
+                        yield original;
+                    }
+
+                    // fills are called from here rather than from the allocating methods to keep recursion shallow
+                    yield switch (plan.kind()) {
+                        case ARRAY, PLAIN -> {
+                            boolean isArray = plan.kind() == ClassPlan.Kind.ARRAY;
+                            Object copy = isArray ? allocateArray(original, plan) : allocatePlainObject(original, plan, scope);
+
+                            if (defersFill()) {
+                                if (!plan.hasAtomicElements()) {
+                                    workQueue.add(new WorkQueue.Task(original, copy, plan, scope));
+                                }
+                            } else {
+                                depth++;
+                                try {
+                                    if (isArray) {
+                                        fillArray(original, copy, plan, scope);
+                                    } else {
+                                        fillPlainObject(original, copy, plan, scope);
+                                    }
+                                } finally {
+                                    depth--;
+                                }
+                            }
+
+                            yield copy;
+                        }
+                        case RECORD -> copyViaCanonicalCtor(original, plan, scope, List.of());
+                        // generated copiers of records pass copied components to the canonical constructor;
+                        // other copiers only store the copies, so their elements may stay in the queue
+                        default -> {
+                            boolean constructs = plan.type().isRecord();
+                            if (constructs) {
+                                constructorsPending++;
+                            }
+                            try {
+                                yield plan.copier().copy(original, new NodeContext(plan, scope));
+                            } finally {
+                                if (constructs) {
+                                    constructorsPending--;
+                                }
+                            }
+                        }
+                    };
+                }
+            };
+        } catch (DeepCopyException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DeepCopyException(original.getClass(), e);
         }
 
         @SuppressWarnings("unchecked")
@@ -94,63 +311,230 @@ public class DeepCopyMaker {
         return typedResult;
     }
 
-    private Object copyArray(Object host, Class<?> componentClazz) throws Exception {
+    /**
+     * Whether a copy allocated now is to be filled from the work queue rather than right away. Records and
+     * constructor arguments cannot wait, but records cannot form the long chains the recursion limit is about.
+     */
+    private boolean defersFill() {
+        return constructorsPending == 0 && (!workQueue.fillsByRecursion() || depth > MAX_RECURSION_DEPTH);
+    }
+
+    private void fill(WorkQueue.Task task) throws Exception {
+        if (task.plan().kind() == ClassPlan.Kind.ARRAY) {
+            fillArray(task.original(), task.copy(), task.plan(), task.scope());
+        } else {
+            fillPlainObject(task.original(), task.copy(), task.plan(), task.scope());
+        }
+    }
+
+    private void guardGraphSize(Object context) {
+        if (currentItemsCount++ > MAX_OBJECT_GRAPH_SIZE) {
+            String reason = "Maximum copy size (%s) exceeded".formatted(MAX_OBJECT_GRAPH_SIZE);
+            throw new DeepCopyException(reason, context == null ? null : context.getClass(), List.of(), null);
+        }
+    }
+
+    /**
+     * Creates and registers an array copy, complete when the elements are atomic and to be filled otherwise.
+     */
+    private Object allocateArray(Object host, ClassPlan plan) {
+        int length = Array.getLength(host);
+        Object hostCopy = Array.newInstance(plan.type().getComponentType(), length);
+        if (plan.isTracked()) {
+            visited.put(host, hostCopy);
+        }
+
+        if (plan.hasAtomicElements()) {
+            System.arraycopy(host, 0, hostCopy, 0, length);
+        }
+
+        return hostCopy;
+    }
+
+    private void fillArray(Object host, Object hostCopy, ClassPlan plan, CopyScope scope) throws Exception {
+        if (plan.hasAtomicElements()) {
+            return;
+        }
+
         int length = Array.getLength(host);
-        Object hostCopy = Array.newInstance(componentClazz, length);
-        visited.put(host, hostCopy);
+        elementSlotsCount += length;
 
         for (int i = 0; i < length; i++) {
             Object element = Array.get(host, i);
-            Object elementCopy = makeCopyRecursive(element);
+            Object elementCopy;
+            try {
+                elementCopy = makeCopyRecursive(element, null, scope, null);
+            } catch (DeepCopyException e) {
+                throw e.withinElement(i);
+            }
             Array.set(hostCopy, i, elementCopy);
         }
-
-        return hostCopy;
     }
 
-    private Object copyPlainObject(Object host, Class<?> clazz) throws Exception {
-        Object hostCopy = switch (bareInstancesSource.newInstanceOf(clazz)) {
+    private Object allocatePlainObject(Object host, ClassPlan plan, CopyScope scope) throws Exception {
+        Class<?> clazz = plan.type();
+
+        Object hostCopy = switch (plans.bareInstances().newInstanceOf(clazz)) {
             case InstantiationResult.Success(Object instance) -> instance;
-            case InstantiationResult.NullPointer ignored -> copyViaCanonicalCtor(host, clazz);
-            case InstantiationResult.GeneralFailure(Exception exception) -> throw new RuntimeException("Failed instantiation for class: %s".formatted(clazz), exception);
+            case InstantiationResult.NullPointer(NullPointerException exception) ->
+                copyViaCanonicalCtor(host, plan, scope, List.of(plans.bareInstances().describeAttempt(clazz, exception)));
+            case InstantiationResult.GeneralFailure(Exception exception) ->
+                throw new DeepCopyException("Failed instantiation", clazz, List.of(plans.bareInstances().describeAttempt(clazz, exception)), exception);
         };
 
-        visited.put(host, hostCopy);
-
-        for (Field field : getAllDynamicFields(clazz)) {
-            Object value = field.get(host);
-            Object valueCopy = makeCopyRecursive(value);
-            field.set(hostCopy, valueCopy);
+        if (plan.isTracked()) {
+            visited.put(host, hostCopy);
         }
 
         return hostCopy;
     }
 
-    private Object copyViaCanonicalCtor(Object host, Class<?> clazz) throws Exception {
-        List<Field> fields = getAllDynamicFields(clazz);
+    private void fillPlainObject(Object host, Object hostCopy, ClassPlan plan, CopyScope scope) throws Exception {
+        for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+            Field field = fieldPlan.field();
+            field.set(hostCopy, copyFieldValue(host, fieldPlan, scope));
+        }
+    }
 
-        Constructor<?> canonicalCtor = clazz.getDeclaredConstructor(
-            fields.stream().map(Field::getType).toArray(Class[]::new)
-        );
-        canonicalCtor.setAccessible(true);
+    /**
+     * @param priorAttempts ways of instantiating the class tried before, to be reported if this one fails too
+     */
+    private Object copyViaCanonicalCtor(Object host, ClassPlan plan, CopyScope scope, List<String> priorAttempts) throws Exception {
+        List<ClassPlan.FieldPlan> fields = plan.fields();
+        Constructor<?> canonicalCtor;
+        try {
+            canonicalCtor = plan.canonicalConstructor();
+        } catch (NoSuchMethodException e) {
+            throw canonicalCtorFailure(plan, priorAttempts, e);
+        }
 
         Object[] args = new Object[fields.size()];
 
-        int i = 0;
-        for (Field field : fields) {
-            Object value = field.get(host);
-            Object valueCopy = makeCopyRecursive(value);
-            args[i++] = valueCopy;
+        // the constructor may read its arguments, so they are copied depth-first rather than left to the work queue
+        constructorsPending++;
+        try {
+            int i = 0;
+            for (ClassPlan.FieldPlan fieldPlan : fields) {
+                args[i++] = copyFieldValue(host, fieldPlan, scope);
+            }
+        } finally {
+            constructorsPending--;
         }
 
-        return canonicalCtor.newInstance(args);
+        try {
+            return canonicalCtor.newInstance(args);
+        } catch (ReflectiveOperationException e) {
+            throw canonicalCtorFailure(plan, priorAttempts, e);
+        }
+    }
+
+    static DeepCopyException canonicalCtorFailure(ClassPlan plan, List<String> priorAttempts, Exception outcome) {
+        Class<?>[] parameterTypes = plan.fields().stream().map(fieldPlan -> fieldPlan.field().getType()).toArray(Class[]::new);
+
+        var attempts = new ArrayList<>(priorAttempts);
+        attempts.add(DeepCopyException.attempt(plan.type(), parameterTypes, "copied field values", outcome));
+
+        return new DeepCopyException("Failed instantiation", plan.type(), attempts, outcome);
     }
 
-    private static List<Field> getAllDynamicFields(Class<?> topClass) {
-        return Stream.iterate(topClass, cl -> cl != null && cl != Object.class, (Class<?> cl) -> cl.getSuperclass())
-                     .flatMap(cl -> Stream.of(cl.getDeclaredFields()))
-                     .filter(field -> !Modifier.isStatic(field.getModifiers()))
-                     .peek(field -> field.setAccessible(true))
-                     .toList();
+    private Object copyFieldValue(Object host, ClassPlan.FieldPlan fieldPlan, CopyScope scope) throws Exception {
+        Field field = fieldPlan.field();
+        try {
+            return switch (fieldPlan.action()) {
+                case COPY -> switch (fieldPlan.dispatch()) {
+                    case ATOMIC -> field.get(host);
+                    case MONOMORPHIC -> makeCopyRecursive(field.get(host), fieldPlan.declaredTypePlan(plans), scope, field.getName());
+                    case POLYMORPHIC -> makeCopyRecursive(field.get(host), null, scope, field.getName());
+                };
+                case SHARE -> field.get(host);
+                case SKIP -> fieldPlan.defaultValue();
+            };
+        } catch (DeepCopyException e) {
+            // fields inside JDK classes are left out of paths, their elements show as indices
+            throw plans.of(host.getClass()).isTransparent() ? e : e.withinField(field.getName());
+        }
+    }
+
+    /**
+     * Context handed to a dedicated copier, bound to the object it copies.
+     */
+    private final class NodeContext implements CopyContext {
+
+        private final ClassPlan plan;
+        private final CopyScope scope;
+
+        private NodeContext(ClassPlan plan, CopyScope scope) {
+            this.plan = plan;
+            this.scope = scope;
+        }
+
+        @Override
+        public <V> V copyField(V value, String fieldName) throws Exception {
+            if (fieldName == null) {
+                elementSlotsCount++;
+            }
+            try {
+                return makeCopyRecursive(value, null, scope, fieldName);
+            } catch (DeepCopyException e) {
+                if (fieldName == null) {
+                    throw e.withinElements();
+                }
+                throw plan.isTransparent() ? e : e.withinField(fieldName);
+            }
+        }
+
+        @Override
+        public void register(Object original, Object copy) {
+            if (plan.isTracked()) {
+                visited.put(original, copy);
+            }
+        }
+    }
+
+    /**
+     * Copies the elements of a source spliterator as they are pulled. Each split gets its own copying state,
+     * so splits can be consumed by different threads.
+     */
+    private static final class CopyingSpliterator<T> implements Spliterator<T> {
+
+        // copies of distinct or sorted elements need not be distinct, nor sorted by the same comparator,
+        // and copies of non-null elements are null when their type is skipped, by option or by annotation
+        private static final int PRESERVED_CHARACTERISTICS = ~(DISTINCT | SORTED | NONNULL);
+
+        private final Spliterator<T> source;
+        private final CopyOptions options;
+        private final DeepCopyMaker maker;
+
+        private CopyingSpliterator(Spliterator<T> source, CopyOptions options) {
+            this.source = source;
+            this.options = options;
+            this.maker = new DeepCopyMaker(options);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            return source.tryAdvance(element -> action.accept(maker.copyElement(element)));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            source.forEachRemaining(element -> action.accept(maker.copyElement(element)));
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<T> split = source.trySplit();
+            return split == null ? null : new CopyingSpliterator<>(split, options);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & PRESERVED_CHARACTERISTICS;
+        }
     }
 }
@@ -0,0 +1,26 @@
+package deep;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests a reflection-free {@link DeepCopier} for the annotated class or record, generated at compile time
+ * by {@code deep.processor.DeepCopyableProcessor}. The copier is named after the class, with nesting levels joined
+ * by underscores, e.g. {@code Outer_Inner_DeepCopier} for {@code Outer.Inner}, lives in the same package,
+ * and is picked up by {@link DeepCopyMaker} ahead of the reflective copying.
+ *
+ * <p>
+ * The generated code accesses fields directly, so they must not be {@code private} or {@code final}, and a class
+ * needs a non-private constructor without parameters. Records are created through their canonical constructor.
+ * {@link ShareReference} and {@link SkipCopy} on fields are honoured. Programmatic field rules and
+ * {@link CopyOptions#skippingTransient()} cannot be, so under such options the reflective path is used instead.
+ * </p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DeepCopyable {
+}
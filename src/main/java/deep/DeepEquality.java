@@ -0,0 +1,421 @@
+package deep;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Deep equality and deep hash of object graphs, with the same semantics as {@link DeepCopyMaker}:
+ * a graph equals its deep copy, made with the same options.
+ *
+ * <p>
+ * Atomic values (see {@link TypesExpert}) are compared with {@code equals}, primitive arrays in bulk, and everything else
+ * field by field, down the per-class plans the copies are made with, except for JDK classes with dedicated copiers
+ * and JDK collections and maps, which are compared by their logical contents: lists and other collections element
+ * by element in iteration order, sets and maps regardless of order, so that their capacity and the history
+ * of their updates do not matter. Values shared by policy are compared by identity
+ * and skipped ones are ignored. Two graphs are equal only if they also share the same way: nodes are matched one to one,
+ * so a node referenced twice on one side must be matched by a single node referenced twice on the other.
+ * This matching also stops the traversal at cycles. As for copies, records and {@link TreeShaped} types
+ * that cannot form cycles are not matched, only compared.
+ * </p>
+ *
+ * <p>
+ * Only the share/skip/tree rules of the options matter here; depth and path limits and the traversal order do not.
+ * When the rules skip transient fields, JDK collections and maps are compared field by field like other classes,
+ * since their copies then miss the contents the JDK keeps in transient fields.
+ * </p>
+ *
+ * <p>
+ * Elements of sets and keys of maps are paired with their counterparts in iteration order first; only when that fails
+ * are they searched among the other side's elements with the same atomic value or class, which can take quadratic time
+ * for large sets of non-atomic elements laid out differently. Deep hashes of sets and maps account for their atomic
+ * elements, keys and values only, and for the classes of the others.
+ * </p>
+ *
+ * <p>
+ * Typical usage:
+ * {@code
+ *     MyType copy = DeepCopyMaker.deepCopy(original);
+ *     assert DeepEquality.deepEquals(original, copy);
+ *     assert DeepEquality.deepHash(original) == DeepEquality.deepHash(copy);
+ * }
+ * </p>
+ */
+public final class DeepEquality {
+
+    private final ClassPlans plans;
+    // nodes matched so far, both ways, to keep the matching one to one
+    private final Map<Object, Object> leftToRight = new IdentityHashMap<>();
+    private final Map<Object, Object> rightToLeft = new IdentityHashMap<>();
+    // left nodes in the order they were matched, to undo the matches of a failed attempt at pairing set elements
+    private final List<Object> matchedLefts = new ArrayList<>();
+    // visit index of each hashed node, standing in for the node when it is met again
+    private final Map<Object, Integer> hashed = new IdentityHashMap<>();
+    // innermost node of the left graph whose comparison or hashing failed, the one the failure is reported at
+    private Object failedNode;
+
+    private DeepEquality(CopyOptions options) {
+        this.plans = options.plans();
+    }
+
+    public static boolean deepEquals(Object left, Object right) {
+        return deepEquals(left, right, CopyOptions.defaults());
+    }
+
+    public static boolean deepEquals(Object left, Object right, CopyOptions options) {
+        var equality = new DeepEquality(options);
+        try {
+            return equality.equalValues(left, right, null);
+        } catch (Exception e) {
+            throw equality.failureOf(left, e).during("compare");
+        }
+    }
+
+    /**
+     * Hash consistent with {@link #deepEquals(Object, Object)}: deeply equal graphs have the same hash.
+     * Values shared by policy contribute their identity hash, which is stable only within one run of the application.
+     */
+    public static int deepHash(Object value) {
+        return deepHash(value, CopyOptions.defaults());
+    }
+
+    public static int deepHash(Object value, CopyOptions options) {
+        var equality = new DeepEquality(options);
+        try {
+            return equality.hashValue(value, null);
+        } catch (Exception e) {
+            throw equality.failureOf(value, e).during("hash");
+        }
+    }
+
+    /**
+     * Turns a failure into a {@link DeepCopyException} located at the node that failed, the path to which is searched
+     * for afterwards, as for copies filled from a work queue.
+     */
+    private DeepCopyException failureOf(Object root, Exception e) {
+        var failure = e instanceof DeepCopyException known ? known : new DeepCopyException(failedNode.getClass(), e);
+        List<Object> path = failedNode == root ? List.of() : new GraphPaths(plans).pathTo(root, failedNode);
+        return failure.withinPath(path).fromRoot(root.getClass());
+    }
+
+    /**
+     * @param knownPlan plan of both values' class when it is known from a final declared type, {@code null} to look it up
+     */
+    private boolean equalValues(Object left, Object right, ClassPlan knownPlan) throws IllegalAccessException {
+        // no shortcut for identical nodes, they may still be matched with different ones elsewhere in the graphs
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left.getClass() != right.getClass()) {
+            return false;
+        }
+
+        try {
+            return equalNodes(left, right, knownPlan);
+        } catch (IllegalAccessException | RuntimeException e) {
+            failedNode = failedNode != null ? failedNode : left;
+            throw e;
+        }
+    }
+
+    private boolean equalNodes(Object left, Object right, ClassPlan knownPlan) throws IllegalAccessException {
+        ClassPlan plan = knownPlan != null ? knownPlan : plans.of(left.getClass());
+
+        return switch (plan.kind()) {
+            case ATOMIC -> left.equals(right);
+            case SHARED -> left == right;
+            case SKIPPED -> true;
+            case ARRAY, RECORD, PLAIN, CUSTOM -> {
+                if (plan.isTracked()) {
+                    Object matched = leftToRight.get(left);
+                    if (matched != null || rightToLeft.containsKey(right)) {
+                        yield matched == right;
+                    }
+                    leftToRight.put(left, right);
+                    rightToLeft.put(right, left);
+                    matchedLefts.add(left);
+                }
+
+                if (plan.copier() instanceof JdkCopiers.JdkCopier<Object> jdkCopier) {
+                    yield equalElements(jdkCopier.state(left), jdkCopier.state(right));
+                }
+                if (isJdkContainer(left, plan)) {
+                    yield equalContents(left, right);
+                }
+                yield plan.kind() == ClassPlan.Kind.ARRAY ? equalArrays(left, right, plan) : equalFields(left, right, plan);
+            }
+        };
+    }
+
+    /**
+     * Whether the value is a JDK collection or map, compared and hashed by its logical contents.
+     */
+    private boolean isJdkContainer(Object value, ClassPlan plan) {
+        return (value instanceof Collection<?> || value instanceof Map<?, ?>)
+               && plan.isTransparent() && plan.kind() != ClassPlan.Kind.ARRAY && !plans.rules().skipTransient();
+    }
+
+    private boolean equalContents(Object left, Object right) throws IllegalAccessException {
+        if (left instanceof Map<?, ?> leftMap) {
+            return equalUnordered(entriesOf(leftMap), entriesOf((Map<?, ?>) right), 2);
+        }
+
+        Object[] leftElements = ((Collection<?>) left).toArray();
+        Object[] rightElements = ((Collection<?>) right).toArray();
+        return left instanceof Set<?> ? equalUnordered(leftElements, rightElements, 1) : equalElements(leftElements, rightElements);
+    }
+
+    /**
+     * Compares groups of {@code width} consecutive items, e.g. keys and values, regardless of the order of the groups.
+     * Each left group is paired with the right group at the same position if they are equal, and otherwise with
+     * the first equal one among the unpaired right groups whose first items have the same shallow hash.
+     */
+    private boolean equalUnordered(Object[] left, Object[] right, int width) throws IllegalAccessException {
+        if (left.length != right.length) {
+            return false;
+        }
+
+        int groups = left.length / width;
+        boolean[] paired = new boolean[groups];
+        Map<Integer, List<Integer>> rightGroupsByHash = null;
+
+        for (int i = 0; i < groups; i++) {
+            if (!paired[i] && equalGroups(left, i, right, i, width)) {
+                paired[i] = true;
+                continue;
+            }
+
+            if (rightGroupsByHash == null) {
+                rightGroupsByHash = new HashMap<>();
+                for (int j = 0; j < groups; j++) {
+                    rightGroupsByHash.computeIfAbsent(shallowHash(right[j * width]), hash -> new ArrayList<>()).add(j);
+                }
+            }
+
+            boolean found = false;
+            for (int j : rightGroupsByHash.getOrDefault(shallowHash(left[i * width]), List.of())) {
+                if (!paired[j] && j != i && equalGroups(left, i, right, j, width)) {
+                    paired[j] = true;
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // undoes the matches made while comparing groups that turn out different, so that they can be paired elsewhere
+    private boolean equalGroups(Object[] left, int leftGroup, Object[] right, int rightGroup, int width) throws IllegalAccessException {
+        int matchedBefore = matchedLefts.size();
+
+        for (int k = 0; k < width; k++) {
+            if (!equalValues(left[leftGroup * width + k], right[rightGroup * width + k], null)) {
+                while (matchedLefts.size() > matchedBefore) {
+                    Object unmatched = matchedLefts.remove(matchedLefts.size() - 1);
+                    rightToLeft.remove(leftToRight.remove(unmatched));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object[] entriesOf(Map<?, ?> map) {
+        var items = new ArrayList<>(2 * map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            items.add(entry.getKey());
+            items.add(entry.getValue());
+        }
+        return items.toArray();
+    }
+
+    /**
+     * Hash of a value that does not look past it: equal values have the same one wherever they are in their graphs.
+     */
+    private int shallowHash(Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        return switch (plans.of(value.getClass()).kind()) {
+            case ATOMIC -> atomicHash(value);
+            case SHARED -> System.identityHashCode(value);
+            default -> value.getClass().getName().hashCode();
+        };
+    }
+
+    private boolean equalArrays(Object left, Object right, ClassPlan plan) throws IllegalAccessException {
+        if (plan.hasAtomicElements()) {
+            return switch (left) {
+                case boolean[] array -> Arrays.equals(array, (boolean[]) right);
+                case byte[] array -> Arrays.equals(array, (byte[]) right);
+                case short[] array -> Arrays.equals(array, (short[]) right);
+                case char[] array -> Arrays.equals(array, (char[]) right);
+                case int[] array -> Arrays.equals(array, (int[]) right);
+                case long[] array -> Arrays.equals(array, (long[]) right);
+                case float[] array -> Arrays.equals(array, (float[]) right);
+                case double[] array -> Arrays.equals(array, (double[]) right);
+                default -> Arrays.equals((Object[]) left, (Object[]) right);
+            };
+        }
+
+        // non-atomic components are never primitive
+        return equalElements((Object[]) left, (Object[]) right);
+    }
+
+    private boolean equalElements(Object[] leftElements, Object[] rightElements) throws IllegalAccessException {
+        if (leftElements.length != rightElements.length) {
+            return false;
+        }
+        for (int i = 0; i < leftElements.length; i++) {
+            if (!equalValues(leftElements[i], rightElements[i], null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalFields(Object left, Object right, ClassPlan plan) throws IllegalAccessException {
+        for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+            Field field = fieldPlan.field();
+
+            boolean equal = switch (fieldPlan.action()) {
+                case COPY -> switch (fieldPlan.dispatch()) {
+                    case ATOMIC -> Objects.equals(field.get(left), field.get(right));
+                    case MONOMORPHIC -> equalValues(field.get(left), field.get(right), fieldPlan.declaredTypePlan(plans));
+                    case POLYMORPHIC -> equalValues(field.get(left), field.get(right), null);
+                };
+                case SHARE -> field.get(left) == field.get(right);
+                case SKIP -> true;
+            };
+
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hashValue(Object value, ClassPlan knownPlan) throws IllegalAccessException {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return hashNode(value, knownPlan);
+        } catch (IllegalAccessException | RuntimeException e) {
+            failedNode = failedNode != null ? failedNode : value;
+            throw e;
+        }
+    }
+
+    private int hashNode(Object value, ClassPlan knownPlan) throws IllegalAccessException {
+        ClassPlan plan = knownPlan != null ? knownPlan : plans.of(value.getClass());
+
+        return switch (plan.kind()) {
+            case ATOMIC -> atomicHash(value);
+            case SHARED -> System.identityHashCode(value);
+            case SKIPPED -> 0;
+            case ARRAY, RECORD, PLAIN, CUSTOM -> {
+                if (plan.isTracked()) {
+                    Integer index = hashed.get(value);
+                    if (index != null) {
+                        yield -index;
+                    }
+                    hashed.put(value, hashed.size() + 1);
+                }
+
+                int contents = plan.copier() instanceof JdkCopiers.JdkCopier<Object> jdkCopier ? hashElements(jdkCopier.state(value))
+                    : isJdkContainer(value, plan) ? hashContents(value)
+                    : plan.kind() == ClassPlan.Kind.ARRAY ? hashArray(value, plan)
+                    : hashFields(value, plan);
+                yield 31 * plan.type().getName().hashCode() + contents;
+            }
+        };
+    }
+
+    // enums hash by ordinal rather than by identity, which keeps hashes of graphs without shared values stable across runs
+    private static int atomicHash(Object value) {
+        return value instanceof Enum<?> constant ? constant.ordinal() : Objects.hashCode(value);
+    }
+
+    private int hashArray(Object value, ClassPlan plan) throws IllegalAccessException {
+        if (plan.hasAtomicElements() && plan.type().getComponentType().isPrimitive()) {
+            return switch (value) {
+                case boolean[] array -> Arrays.hashCode(array);
+                case byte[] array -> Arrays.hashCode(array);
+                case short[] array -> Arrays.hashCode(array);
+                case char[] array -> Arrays.hashCode(array);
+                case int[] array -> Arrays.hashCode(array);
+                case long[] array -> Arrays.hashCode(array);
+                case float[] array -> Arrays.hashCode(array);
+                case double[] array -> Arrays.hashCode(array);
+                default -> throw new IllegalStateException("Not a primitive array: " + plan.type());
+            };
+        }
+
+        return hashElements((Object[]) value);
+    }
+
+    private int hashElements(Object[] elements) throws IllegalAccessException {
+        int hash = 1;
+        for (Object element : elements) {
+            hash = 31 * hash + hashValue(element, null);
+        }
+        return hash;
+    }
+
+    // sets and maps are not hashed past their elements, which are visited in an order that depends on their layout
+    private int hashContents(Object value) throws IllegalAccessException {
+        if (value instanceof Map<?, ?> map) {
+            return hashUnordered(entriesOf(map), 2);
+        }
+
+        Object[] elements = ((Collection<?>) value).toArray();
+        return value instanceof Set<?> ? hashUnordered(elements, 1) : hashElements(elements);
+    }
+
+    private int hashUnordered(Object[] items, int width) {
+        int hash = 0;
+        for (int i = 0; i < items.length; i += width) {
+            int groupHash = 1;
+            for (int k = 0; k < width; k++) {
+                groupHash = 31 * groupHash + shallowHash(items[i + k]);
+            }
+            hash += groupHash;
+        }
+        return hash;
+    }
+
+    private int hashFields(Object value, ClassPlan plan) throws IllegalAccessException {
+        int hash = 1;
+
+        for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+            Field field = fieldPlan.field();
+
+            int fieldHash = switch (fieldPlan.action()) {
+                case COPY -> switch (fieldPlan.dispatch()) {
+                    case ATOMIC -> atomicHash(field.get(value));
+                    case MONOMORPHIC -> hashValue(field.get(value), fieldPlan.declaredTypePlan(plans));
+                    case POLYMORPHIC -> hashValue(field.get(value), null);
+                };
+                case SHARE -> System.identityHashCode(field.get(value));
+                case SKIP -> 0;
+            };
+
+            hash = 31 * hash + fieldHash;
+        }
+        return hash;
+    }
+}
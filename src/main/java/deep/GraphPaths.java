@@ -0,0 +1,107 @@
+package deep;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the path from the root of an original graph to one of its objects, in the segments of
+ * {@link DeepCopyException#getPath()}. Copies filled from a work queue do not keep track of how their originals
+ * were reached, so when one fails, the path is searched for afterwards; successful copies pay nothing for it.
+ */
+final class GraphPaths {
+
+    private final ClassPlans plans;
+    // the way each object was first reached: {parent, segment}, the segment being null inside JDK classes
+    private final Map<Object, Object[]> reachedFrom = new IdentityHashMap<>();
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+    GraphPaths(ClassPlans plans) {
+        this.plans = plans;
+    }
+
+    /**
+     * Returns the segments leading from the root to the target, along the shortest path the copy follows,
+     * or a single {@link DeepCopyException#UNKNOWN_SEGMENT} if the target is not found within the copy size limit.
+     */
+    List<Object> pathTo(Object root, Object target) {
+        reachedFrom.put(root, null);
+        pending.add(root);
+
+        try {
+            while (!pending.isEmpty() && reachedFrom.size() <= DeepCopyMaker.MAX_OBJECT_GRAPH_SIZE) {
+                Object node = pending.poll();
+                if (node == target) {
+                    return segmentsTo(node);
+                }
+                visitChildren(node);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the original failure is what matters, the path is only a clue
+        }
+
+        return List.of(DeepCopyException.UNKNOWN_SEGMENT);
+    }
+
+    private void visitChildren(Object node) throws IllegalAccessException {
+        ClassPlan plan = plans.of(node.getClass());
+
+        switch (plan.kind()) {
+            case ATOMIC, SHARED, SKIPPED -> {
+            }
+            case ARRAY -> {
+                if (!plan.hasAtomicElements()) {
+                    for (int i = 0; i < Array.getLength(node); i++) {
+                        reach(Array.get(node, i), node, i);
+                    }
+                }
+            }
+            case RECORD, PLAIN, CUSTOM -> {
+                if (plan.copier() instanceof JdkCopiers.JdkCopier<Object> jdkCopier) {
+                    reachElements(jdkCopier.state(node), node);
+                    return;
+                }
+                for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+                    if (fieldPlan.action() == ClassPlan.FieldAction.COPY && fieldPlan.dispatch() != ClassPlan.Dispatch.ATOMIC) {
+                        reach(fieldPlan.field().get(node), node, plan.isTransparent() ? null : fieldPlan.field().getName());
+                    }
+                }
+            }
+        }
+    }
+
+    private void reachElements(Object[] elements, Object parent) {
+        for (Object element : elements) {
+            // state may hold arrays of elements, which are no objects of the original graph
+            if (element instanceof Object[] nested) {
+                reachElements(nested, parent);
+            } else {
+                reach(element, parent, DeepCopyException.ELEMENTS_SEGMENT);
+            }
+        }
+    }
+
+    private void reach(Object child, Object parent, Object segment) {
+        if (child != null && !reachedFrom.containsKey(child)) {
+            reachedFrom.put(child, new Object[]{parent, segment});
+            pending.add(child);
+        }
+    }
+
+    private List<Object> segmentsTo(Object node) {
+        var segments = new ArrayList<>();
+
+        for (Object[] step = reachedFrom.get(node); step != null; step = reachedFrom.get(step[0])) {
+            if (step[1] != null) {
+                segments.add(step[1]);
+            }
+        }
+
+        Collections.reverse(segments);
+        return segments;
+    }
+}
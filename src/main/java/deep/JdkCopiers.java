@@ -0,0 +1,166 @@
+package deep;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Dedicated copiers of JDK classes that are backed by arrays or native memory, which copy the backing storage
+ * in bulk instead of reflecting over the internals. For direct buffers it is also the only way to get a copy
+ * that does not alias the native memory of the original. Since they replace copying field by field, field rules and the transient
+ * policy of {@link CopyRules} do not apply to the internals of these classes.
+ */
+final class JdkCopiers {
+
+    /**
+     * Copier of a JDK class whose fields are not meaningful for deep equality either.
+     */
+    interface JdkCopier<T> extends DeepCopier<T> {
+
+        /**
+         * Logical state of the value, compared and hashed by {@link DeepEquality} in place of its fields.
+         */
+        Object[] state(T value);
+    }
+
+    private JdkCopiers() {
+    }
+
+    /**
+     * Returns the copier for instances of the given class, {@code null} if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    static DeepCopier<Object> forClass(Class<?> clazz) {
+        JdkCopier<?> copier;
+
+        if (ByteBuffer.class.isAssignableFrom(clazz)) {
+            copier = new ByteBufferCopier();
+        } else if (EnumSet.class.isAssignableFrom(clazz)) {
+            copier = new EnumSetCopier();
+        } else if (clazz == BitSet.class) {
+            copier = new BitSetCopier();
+        } else if (clazz == EnumMap.class) {
+            copier = new EnumMapCopier();
+        } else if (clazz == ArrayDeque.class) {
+            copier = new ArrayDequeCopier();
+        } else {
+            copier = null;
+        }
+
+        return (DeepCopier<Object>) copier;
+    }
+
+    /**
+     * Copies heap buffers into heap buffers and direct ones into direct ones, keeping capacity, position, limit,
+     * byte order and read-only state. The whole capacity is copied, not only the remaining bytes.
+     * The mark is not kept, and buffers that shared memory in the original graph no longer do in the copy.
+     */
+    private static final class ByteBufferCopier implements JdkCopier<ByteBuffer> {
+
+        @Override
+        public ByteBuffer copy(ByteBuffer original, CopyContext context) {
+            int capacity = original.capacity();
+
+            ByteBuffer copy = original.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            // a cleared duplicate exposes the whole capacity without touching the original's position and limit
+            copy.put(original.duplicate().clear());
+            copy.limit(original.limit()).position(original.position());
+
+            if (original.isReadOnly()) {
+                copy = copy.asReadOnlyBuffer();
+            }
+            copy.order(original.order());
+
+            context.register(original, copy);
+            return copy;
+        }
+
+        @Override
+        public Object[] state(ByteBuffer value) {
+            byte[] contents = new byte[value.capacity()];
+            value.duplicate().clear().get(contents);
+            return new Object[]{value.isDirect(), value.isReadOnly(), value.order().toString(), value.position(), value.limit(), contents};
+        }
+    }
+
+    private static final class BitSetCopier implements JdkCopier<BitSet> {
+
+        @Override
+        public BitSet copy(BitSet original, CopyContext context) {
+            var copy = (BitSet) original.clone();
+            context.register(original, copy);
+            return copy;
+        }
+
+        @Override
+        public Object[] state(BitSet value) {
+            return new Object[]{value.toLongArray()};
+        }
+    }
+
+    /**
+     * Enum constants are atomic, so a clone of the bit vector is a deep copy.
+     */
+    private static final class EnumSetCopier implements JdkCopier<EnumSet<?>> {
+
+        @Override
+        public EnumSet<?> copy(EnumSet<?> original, CopyContext context) {
+            var copy = original.clone();
+            context.register(original, copy);
+            return copy;
+        }
+
+        @Override
+        public Object[] state(EnumSet<?> value) {
+            return value.toArray();
+        }
+    }
+
+    /**
+     * The copy constructor clones the ordinal-indexed array of values, which are then replaced with their copies.
+     */
+    private static final class EnumMapCopier implements JdkCopier<EnumMap<?, Object>> {
+
+        @Override
+        public EnumMap<?, Object> copy(EnumMap<?, Object> original, CopyContext context) throws Exception {
+            var copy = new EnumMap<>(original);
+            context.register(original, copy);
+
+            for (Map.Entry<?, Object> entry : copy.entrySet()) {
+                entry.setValue(context.copyField(entry.getValue(), null));
+            }
+            return copy;
+        }
+
+        @Override
+        public Object[] state(EnumMap<?, Object> value) {
+            return new Object[]{value.keySet().toArray(), value.values().toArray()};
+        }
+    }
+
+    private static final class ArrayDequeCopier implements JdkCopier<ArrayDeque<Object>> {
+
+        @Override
+        public ArrayDeque<Object> copy(ArrayDeque<Object> original, CopyContext context) throws Exception {
+            var copy = new ArrayDeque<>(original.size());
+            context.register(original, copy);
+
+            for (Object element : original) {
+                Object elementCopy = context.copyField(element, null);
+                // a deque holds no nulls, so elements skipped by policy are left out
+                if (elementCopy != null) {
+                    copy.addLast(elementCopy);
+                }
+            }
+            return copy;
+        }
+
+        @Override
+        public Object[] state(ArrayDeque<Object> value) {
+            return value.toArray();
+        }
+    }
+}
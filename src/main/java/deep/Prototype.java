@@ -0,0 +1,552 @@
+package deep;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Object graph compiled into a flat tape of instructions, which stamps out deep copies of the graph as it was
+ * when recorded: allocate node {@code k} of class {@code C}, set field {@code f} of node {@code k} to a constant
+ * or to node {@code j}, clone an array, and so on. Replaying the tape involves no type dispatch, no identity map
+ * and no field iteration, so it is much cheaper than copying the graph again, while producing the same copies,
+ * cycles and shared references included. Made by {@link DeepCopyMaker#prototype(Object, CopyOptions)}.
+ *
+ * <p>
+ * Atomic values, primitive arrays and values behind dedicated copiers are captured when recording, so later changes
+ * of the original graph do not show in the copies. Values shared with the copies, by policy or by limits,
+ * are shared as they were referenced when recording.
+ * </p>
+ *
+ * <p>
+ * Graphs whose cycles pass through objects that are created only after their contents (records, objects
+ * of classes without a suitable constructor, and values behind dedicated copiers such as {@link java.util.EnumMap})
+ * cannot be laid out on a tape. Prototypes of such graphs fall back to copying a private snapshot of the graph.
+ * </p>
+ *
+ * <p>
+ * Prototypes are immutable and can be used by several threads at once.
+ * </p>
+ *
+ * @param <T> type of the root of the graph
+ */
+public final class Prototype<T> {
+
+    private final Class<?> type;
+    private final Step[] steps;
+    private final int nodeCount;
+    private final Object root;
+    // deep copy of the original graph, copied again by every newCopy() when the graph could not be recorded
+    private final T snapshot;
+    private final CopyOptions options;
+
+    private Prototype(Class<?> type, Step[] steps, int nodeCount, Object root, T snapshot, CopyOptions options) {
+        this.type = type;
+        this.steps = steps;
+        this.nodeCount = nodeCount;
+        this.root = root;
+        this.snapshot = snapshot;
+        this.options = options;
+    }
+
+    static <T> Prototype<T> record(T original, CopyOptions options) {
+        var recorder = new Recorder(options.plans());
+        Class<?> type = original == null ? null : original.getClass();
+
+        try {
+            Object root = recorder.visit(original, null, options.limits().rootScope(), null);
+            return new Prototype<>(type, recorder.steps.toArray(Step[]::new), recorder.nodeCount, root, null, options);
+        } catch (CycleThroughDeferredNode e) {
+            return new Prototype<>(type, null, 0, null, DeepCopyMaker.deepCopy(original, options), options);
+        } catch (Exception e) {
+            throw DeepCopyMaker.failureOf(original, e);
+        }
+    }
+
+    /**
+     * Returns a new deep copy of the recorded graph.
+     */
+    public T newCopy() {
+        if (steps == null) {
+            return DeepCopyMaker.deepCopy(snapshot, options);
+        }
+
+        Object[] nodes = new Object[nodeCount];
+        int next = 0;
+
+        try {
+            for (; next < steps.length; next++) {
+                steps[next].replay(nodes);
+            }
+        } catch (Exception e) {
+            Step failed = steps[next];
+            Object node = nodes[failed.node()];
+            var failure = e instanceof DeepCopyException known ? known
+                : new DeepCopyException(node != null ? node.getClass() : classCreatedBy(failed), e);
+            throw failure.withinPath(pathTo(failed.node())).fromRoot(type);
+        }
+
+        @SuppressWarnings("unchecked")
+        T copy = (T) (root instanceof NodeRef ref ? nodes[ref.index()] : root);
+
+        return copy;
+    }
+
+    private static Class<?> classCreatedBy(Step step) {
+        return switch (step) {
+            case AllocatePlain allocate -> allocate.generator().constructor().getDeclaringClass();
+            case Construct construct -> construct.constructor().getDeclaringClass();
+            case CopyCustom custom -> custom.snapshot().getClass();
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the segments leading from the root to the given node, as {@link GraphPaths} does for originals,
+     * which the tape does not keep: the references between nodes are read from the steps setting them.
+     */
+    private List<Object> pathTo(int target) {
+        var types = new TypesExpert();
+        // nodes referenced by each node, as {node, segment} pairs, the segment being null inside JDK classes
+        List<List<Object[]>> references = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            references.add(new ArrayList<>());
+        }
+
+        for (Step step : steps) {
+            switch (step) {
+                case SetFieldToNode set -> references.get(set.node()).add(new Object[]{
+                    set.value(), types.isTransparent(set.field().getDeclaringClass()) ? null : set.field().getName()
+                });
+                case SetElementToNode set -> references.get(set.node()).add(new Object[]{set.value(), set.index()});
+                case Construct construct -> {
+                    Class<?> constructed = construct.constructor().getDeclaringClass();
+                    int[] arguments = construct.arguments().nodes();
+                    for (int i = 0; i < arguments.length; i++) {
+                        if (arguments[i] >= 0) {
+                            String name = constructed.isRecord() ? constructed.getRecordComponents()[i].getName() : construct.fields()[i].getName();
+                            references.get(construct.node()).add(new Object[]{arguments[i], types.isTransparent(constructed) ? null : name});
+                        }
+                    }
+                }
+                case CopyCustom custom -> {
+                    for (int value : custom.values().nodes()) {
+                        if (value >= 0) {
+                            references.get(custom.node()).add(new Object[]{value, DeepCopyException.ELEMENTS_SEGMENT});
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        // the way each node was first reached, breadth-first from the root: {parent, segment}
+        Object[][] reachedFrom = new Object[nodeCount][];
+        var pending = new ArrayDeque<Integer>();
+        if (root instanceof NodeRef ref) {
+            reachedFrom[ref.index()] = new Object[]{-1, null};
+            pending.add(ref.index());
+        }
+
+        while (!pending.isEmpty() && reachedFrom[target] == null) {
+            int node = pending.poll();
+            for (Object[] reference : references.get(node)) {
+                int child = (int) reference[0];
+                if (reachedFrom[child] == null) {
+                    reachedFrom[child] = new Object[]{node, reference[1]};
+                    pending.add(child);
+                }
+            }
+        }
+
+        if (reachedFrom[target] == null) {
+            return List.of(DeepCopyException.UNKNOWN_SEGMENT);
+        }
+
+        var segments = new ArrayList<>();
+        for (int node = target; node >= 0; node = (int) reachedFrom[node][0]) {
+            if (reachedFrom[node][1] != null) {
+                segments.add(reachedFrom[node][1]);
+            }
+        }
+        Collections.reverse(segments);
+        return segments;
+    }
+
+    /**
+     * Reference to a node of the tape, as opposed to a constant, during recording.
+     */
+    private record NodeRef(int index) {}
+
+    /**
+     * Thrown when recording meets an object whose node does not exist yet, because it is created only
+     * after its contents.
+     */
+    private static final class CycleThroughDeferredNode extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CycleThroughDeferredNode() {
+            super(null, null, false, false);
+        }
+    }
+
+    // stands for a value of the original graph in the snapshots taken by dedicated copiers
+    private static final Object VALUE_SLOT = new Object();
+
+    private interface Step {
+        /**
+         * Node created or filled by the step.
+         */
+        int node();
+
+        void replay(Object[] nodes) throws Exception;
+    }
+
+    private record AllocatePlain(int node, BareInstancesSource.Generator<?> generator) implements Step {
+        @Override
+        public void replay(Object[] nodes) throws Exception {
+            nodes[node] = generator.get();
+        }
+    }
+
+    private record SetFieldToNode(int node, Field field, int value) implements Step {
+        @Override
+        public void replay(Object[] nodes) throws Exception {
+            field.set(nodes[node], nodes[value]);
+        }
+    }
+
+    private record SetFieldToConstant(int node, Field field, Object value) implements Step {
+        @Override
+        public void replay(Object[] nodes) throws Exception {
+            field.set(nodes[node], value);
+        }
+    }
+
+    private record AllocateArray(int node, Class<?> componentType, int length) implements Step {
+        @Override
+        public void replay(Object[] nodes) {
+            nodes[node] = Array.newInstance(componentType, length);
+        }
+    }
+
+    private record SetElementToNode(int node, int index, int value) implements Step {
+        @Override
+        public void replay(Object[] nodes) {
+            ((Object[]) nodes[node])[index] = nodes[value];
+        }
+    }
+
+    private record SetElementToConstant(int node, int index, Object value) implements Step {
+        @Override
+        public void replay(Object[] nodes) {
+            ((Object[]) nodes[node])[index] = value;
+        }
+    }
+
+    /**
+     * Clones an array of atomic elements, primitive ones included, captured when recording.
+     */
+    private record CloneArray(int node, Object contents) implements Step {
+        @Override
+        public void replay(Object[] nodes) {
+            int length = Array.getLength(contents);
+            Object copy = Array.newInstance(contents.getClass().getComponentType(), length);
+            System.arraycopy(contents, 0, copy, 0, length);
+            nodes[node] = copy;
+        }
+    }
+
+    /**
+     * Creates a record, or an object through its canonical constructor, from already created arguments.
+     * The fields of the latter are set afterwards, as {@link DeepCopyMaker} does.
+     */
+    private record Construct(int node, Constructor<?> constructor, Operands arguments, Field[] fields) implements Step {
+        @Override
+        public void replay(Object[] nodes) throws Exception {
+            Object[] values = arguments.resolve(nodes);
+            Object instance = constructor.newInstance(values);
+
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(instance, values[i]);
+            }
+            nodes[node] = instance;
+        }
+    }
+
+    /**
+     * Runs a dedicated copier on a snapshot taken when recording, handing it the copies of the values
+     * it asks for in the order it asked for them then. The snapshot holds {@link #VALUE_SLOT} in place of these values,
+     * so that the tape does not keep the original graph alive.
+     */
+    private record CopyCustom(int node, DeepCopier<Object> copier, Object snapshot, Operands values) implements Step {
+        @Override
+        public void replay(Object[] nodes) throws Exception {
+            Object[] resolved = values.resolve(nodes);
+
+            nodes[node] = copier.copy(snapshot, new CopyContext() {
+                private int next = 0;
+
+                @Override
+                public <V> V copyField(V value, String fieldName) {
+                    @SuppressWarnings("unchecked")
+                    V copy = (V) resolved[next++];
+                    return copy;
+                }
+
+                @Override
+                public void register(Object original, Object copy) {
+                }
+            });
+        }
+    }
+
+    /**
+     * Mix of nodes and constants, e.g. constructor arguments.
+     *
+     * @param nodes     index of the node for each operand, {@code -1} for constants
+     * @param constants value of each constant operand, {@code null} for nodes
+     */
+    private record Operands(int[] nodes, Object[] constants) {
+
+        static Operands of(List<Object> operands) {
+            int[] nodes = new int[operands.size()];
+            Object[] constants = new Object[operands.size()];
+
+            for (int i = 0; i < nodes.length; i++) {
+                if (operands.get(i) instanceof NodeRef ref) {
+                    nodes[i] = ref.index();
+                } else {
+                    nodes[i] = -1;
+                    constants[i] = operands.get(i);
+                }
+            }
+            return new Operands(nodes, constants);
+        }
+
+        Object[] resolve(Object[] tape) {
+            Object[] values = constants.clone();
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] >= 0) {
+                    values[i] = tape[nodes[i]];
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Walks the graph the way {@link DeepCopyMaker} copies it depth-first, recording instead of copying.
+     * Every value is turned into an operand: a {@link NodeRef} for copied objects, the value itself otherwise.
+     */
+    private static final class Recorder {
+
+        private final ClassPlans plans;
+        private final List<Step> steps = new ArrayList<>();
+        private final Map<Object, NodeRef> recorded = new IdentityHashMap<>();
+        // objects being recorded whose node is created only once their contents are
+        private final Map<Object, Object> deferred = new IdentityHashMap<>();
+
+        private int nodeCount = 0;
+        private int itemsCount = 0;
+
+        private Recorder(ClassPlans plans) {
+            this.plans = plans;
+        }
+
+        Object visit(Object original, ClassPlan knownPlan, CopyScope parentScope, String fieldName) throws Exception {
+            if (itemsCount++ > DeepCopyMaker.MAX_OBJECT_GRAPH_SIZE) {
+                String reason = "Maximum copy size (%s) exceeded".formatted(DeepCopyMaker.MAX_OBJECT_GRAPH_SIZE);
+                throw new DeepCopyException(reason, original == null ? null : original.getClass(), List.of(), null);
+            }
+
+            if (original == null) {
+                return null;
+            }
+
+            try {
+                ClassPlan plan = knownPlan != null ? knownPlan : plans.of(original.getClass());
+
+                return switch (plan.kind()) {
+                    case ATOMIC, SHARED -> original;
+                    case SKIPPED -> null;
+                    case ARRAY, RECORD, PLAIN, CUSTOM -> {
+                        NodeRef known = plan.isTracked() ? recorded.get(original) : null;
+                        if (known != null) {
+                            yield known;
+                        }
+
+                        CopyScope scope = parentScope.enter(fieldName, plan);
+                        if (scope.isShared()) {
+                            yield original;
+                        }
+
+                        if (plan.isTracked() && deferred.containsKey(original)) {
+                            throw new CycleThroughDeferredNode();
+                        }
+
+                        // generated copiers honour the same policies, so their classes are recorded field by field
+                        yield switch (plan.kind()) {
+                            case ARRAY -> recordArray(original, plan, scope);
+                            case RECORD -> recordConstructed(original, plan, scope, List.of());
+                            case PLAIN -> recordPlain(original, plan, scope);
+                            default -> plan.copier() instanceof JdkCopiers.JdkCopier ? recordCustom(original, plan, scope)
+                                : plan.type().isRecord() ? recordConstructed(original, plan, scope, List.of())
+                                : recordPlain(original, plan, scope);
+                        };
+                    }
+                };
+            } catch (DeepCopyException | CycleThroughDeferredNode e) {
+                throw e;
+            } catch (Exception e) {
+                throw new DeepCopyException(original.getClass(), e);
+            }
+        }
+
+        private NodeRef newNode(Object original, ClassPlan plan) {
+            var ref = new NodeRef(nodeCount++);
+            if (plan.isTracked()) {
+                recorded.put(original, ref);
+            }
+            return ref;
+        }
+
+        private NodeRef recordArray(Object original, ClassPlan plan, CopyScope scope) throws Exception {
+            NodeRef ref = newNode(original, plan);
+            int length = Array.getLength(original);
+
+            if (plan.hasAtomicElements()) {
+                Object contents = Array.newInstance(plan.type().getComponentType(), length);
+                System.arraycopy(original, 0, contents, 0, length);
+                steps.add(new CloneArray(ref.index(), contents));
+                return ref;
+            }
+
+            // non-atomic components are never primitive
+            Object[] elements = (Object[]) original;
+            steps.add(new AllocateArray(ref.index(), plan.type().getComponentType(), length));
+
+            for (int i = 0; i < length; i++) {
+                Object operand;
+                try {
+                    operand = visit(elements[i], null, scope, null);
+                } catch (DeepCopyException e) {
+                    throw e.withinElement(i);
+                }
+                steps.add(operand instanceof NodeRef element
+                    ? new SetElementToNode(ref.index(), i, element.index())
+                    : new SetElementToConstant(ref.index(), i, operand));
+            }
+            return ref;
+        }
+
+        private NodeRef recordPlain(Object original, ClassPlan plan, CopyScope scope) throws Exception {
+            BareInstancesSource source = plans.bareInstances();
+
+            InstantiationResult failure = source.probe(plan.type());
+            if (failure instanceof InstantiationResult.NullPointer(NullPointerException exception)) {
+                return recordConstructed(original, plan, scope, List.of(source.describeAttempt(plan.type(), exception)));
+            }
+            if (failure instanceof InstantiationResult.GeneralFailure(Exception exception)) {
+                throw new DeepCopyException("Failed instantiation", plan.type(), List.of(source.describeAttempt(plan.type(), exception)), exception);
+            }
+
+            NodeRef ref = newNode(original, plan);
+            // resolved once here, so that replaying allocates without lookups
+            steps.add(new AllocatePlain(ref.index(), source.generatorFor(plan.type())));
+
+            for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+                Object operand = fieldOperand(original, fieldPlan, scope);
+                steps.add(operand instanceof NodeRef value
+                    ? new SetFieldToNode(ref.index(), fieldPlan.field(), value.index())
+                    : new SetFieldToConstant(ref.index(), fieldPlan.field(), operand));
+            }
+            return ref;
+        }
+
+        /**
+         * Records construction through the canonical constructor; fields are set again afterwards for objects
+         * that are not records.
+         *
+         * @param priorAttempts ways of instantiating the class tried before, to be reported if this one fails too
+         */
+        private NodeRef recordConstructed(Object original, ClassPlan plan, CopyScope scope, List<String> priorAttempts) throws Exception {
+            deferred.put(original, original);
+
+            var arguments = new ArrayList<>();
+            for (ClassPlan.FieldPlan fieldPlan : plan.fields()) {
+                arguments.add(fieldOperand(original, fieldPlan, scope));
+            }
+
+            deferred.remove(original);
+
+            Field[] fields = plan.type().isRecord()
+                ? new Field[0]
+                : plan.fields().stream().map(ClassPlan.FieldPlan::field).toArray(Field[]::new);
+
+            Constructor<?> canonicalCtor;
+            try {
+                canonicalCtor = plan.canonicalConstructor();
+            } catch (NoSuchMethodException e) {
+                throw DeepCopyMaker.canonicalCtorFailure(plan, priorAttempts, e);
+            }
+
+            NodeRef ref = newNode(original, plan);
+            steps.add(new Construct(ref.index(), canonicalCtor, Operands.of(arguments), fields));
+            return ref;
+        }
+
+        private NodeRef recordCustom(Object original, ClassPlan plan, CopyScope scope) throws Exception {
+            deferred.put(original, original);
+
+            var values = new ArrayList<>();
+            Object snapshot = plan.copier().copy(original, new CopyContext() {
+                @Override
+                public <V> V copyField(V value, String fieldName) throws Exception {
+                    try {
+                        values.add(visit(value, null, scope, fieldName));
+                    } catch (DeepCopyException e) {
+                        throw fieldName == null ? e.withinElements() : plan.isTransparent() ? e : e.withinField(fieldName);
+                    }
+                    // JDK copiers take values as plain objects
+                    @SuppressWarnings("unchecked")
+                    V slot = (V) VALUE_SLOT;
+                    return slot;
+                }
+
+                @Override
+                public void register(Object original, Object copy) {
+                }
+            });
+
+            deferred.remove(original);
+
+            NodeRef ref = newNode(original, plan);
+            steps.add(new CopyCustom(ref.index(), plan.copier(), snapshot, Operands.of(values)));
+            return ref;
+        }
+
+        private Object fieldOperand(Object host, ClassPlan.FieldPlan fieldPlan, CopyScope scope) throws Exception {
+            Field field = fieldPlan.field();
+            try {
+                return switch (fieldPlan.action()) {
+                    case COPY -> switch (fieldPlan.dispatch()) {
+                        case ATOMIC -> field.get(host);
+                        case MONOMORPHIC -> visit(field.get(host), fieldPlan.declaredTypePlan(plans), scope, field.getName());
+                        case POLYMORPHIC -> visit(field.get(host), null, scope, field.getName());
+                    };
+                    case SHARE -> field.get(host);
+                    case SKIP -> fieldPlan.defaultValue();
+                };
+            } catch (DeepCopyException e) {
+                throw plans.of(host.getClass()).isTransparent() ? e : e.withinField(field.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package deep;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field or a type whose values must not be deep-copied: the copy receives the very same reference
+ * as the original. Typical targets are shared infrastructure objects such as caches, registries or loggers.
+ *
+ * <p>
+ * On a type, the policy applies to every value that is an instance of that type (including subtypes and
+ * implementations), wherever it is met in the object graph.
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+public @interface ShareReference {
+}
@@ -0,0 +1,25 @@
+package deep;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field or a type whose values must not be carried over into the copy at all: the copy receives
+ * the default value instead ({@code null}, {@code 0} or {@code false}).
+ *
+ * <p>
+ * On a type, the policy applies to every value that is an instance of that type (including subtypes and
+ * implementations), wherever it is met in the object graph. When both {@link SkipCopy} and {@link ShareReference}
+ * apply, skipping wins.
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+public @interface SkipCopy {
+}
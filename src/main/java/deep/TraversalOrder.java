@@ -0,0 +1,25 @@
+package deep;
+
+/**
+ * Order in which the copies of an object graph are allocated. The resulting copy is the same in every order;
+ * what differs is how the copied objects end up laid out in memory, which matters to consumers that scan
+ * the copy afterwards. Whatever the order, values passed to constructors, such as the components of records,
+ * are copied completely beforehand, depth-first, so that constructors reading them see the same values.
+ */
+public enum TraversalOrder {
+    /**
+     * Each object is copied together with its whole subgraph before its next sibling, by plain recursion.
+     * The cheapest order, and the default one.
+     */
+    DEPTH_FIRST,
+    /**
+     * All objects of one level are allocated before any object of the next level, so siblings such as
+     * the elements of a list are laid out next to each other.
+     */
+    BREADTH_FIRST,
+    /**
+     * All direct children of an object are allocated next to each other, then each child's subgraph is copied
+     * in turn. Keeps siblings together while staying close to the depth-first layout for nested objects.
+     */
+    SIBLINGS_FIRST
+}
@@ -0,0 +1,26 @@
+package deep;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that instances of the annotated type are never referenced from more than one place in an object graph,
+ * so the copier does not need to track them to preserve shared references.
+ *
+ * <p>
+ * The declaration is honoured only for types whose declared field types rule out cycles through their instances;
+ * for other types it is ignored, so a wrong declaration can duplicate a shared node but never loop forever.
+ * </p>
+ *
+ * @see CopyOptions#assumingTree(Class[])
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface TreeShaped {
+}
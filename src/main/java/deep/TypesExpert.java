@@ -15,4 +15,12 @@ public class TypesExpert {
     public boolean isAtomic(Class<?> clazz) {
         return clazz.isEnum() || IMMUTABLE_TYPES.contains(clazz);
     }
+
+    /**
+     * Arrays and JDK classes are transparent for partial copies: their internals belong to the level
+     * of the user object holding them, see {@link CopyLimits}.
+     */
+    public boolean isTransparent(Class<?> clazz) {
+        return clazz.isArray() || clazz.getName().startsWith("java.");
+    }
 }
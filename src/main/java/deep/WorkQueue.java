@@ -0,0 +1,82 @@
+package deep;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Pending field and element filling of already allocated copies. The queued orders allocate the copies of
+ * an object's children before descending into them; the depth-first order queues only the copies made beyond
+ * a maximum recursion depth, and runs them latest first. Records are never deferred, because they can only be
+ * created from their already copied components, and neither are the arguments of any constructor: a queued
+ * argument is {@linkplain #take(Object) taken} out to be filled first.
+ */
+final class WorkQueue {
+
+    /**
+     * Copy allocated and registered, whose fields or elements are still to be filled from the original.
+     */
+    record Task(Object original, Object copy, ClassPlan plan, CopyScope scope) {}
+
+    private final TraversalOrder order;
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    // children of the task being filled, kept apart to be run before older tasks (siblings-first order only)
+    private final ArrayDeque<Task> batch = new ArrayDeque<>();
+    // queued tasks of tracked objects, the only ones that can be met again before their turn
+    private final Map<Object, Task> pendingTracked = new IdentityHashMap<>();
+
+    WorkQueue(TraversalOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Whether copies are filled by recursion as they are allocated, and queued only past the recursion limit.
+     */
+    boolean fillsByRecursion() {
+        return order == TraversalOrder.DEPTH_FIRST;
+    }
+
+    void add(Task task) {
+        if (task.plan().isTracked()) {
+            pendingTracked.put(task.original(), task);
+        }
+        switch (order) {
+            case DEPTH_FIRST -> tasks.addFirst(task);
+            case BREADTH_FIRST -> tasks.addLast(task);
+            case SIBLINGS_FIRST -> batch.addLast(task);
+        }
+    }
+
+    /**
+     * Returns the next task to run, or {@code null} when there is nothing left to fill.
+     */
+    Task poll() {
+        while (!batch.isEmpty()) {
+            tasks.addFirst(batch.pollLast());
+        }
+
+        Task task;
+        do {
+            task = tasks.pollFirst();
+            // tasks taken out ahead of their turn are left in place and skipped here
+        } while (task != null && task.plan().isTracked() && pendingTracked.remove(task.original()) == null);
+
+        return task;
+    }
+
+    /**
+     * Removes the pending task of the given original, to be run right away, {@code null} if there is none.
+     */
+    Task take(Object original) {
+        return pendingTracked.remove(original);
+    }
+
+    /**
+     * Drops all pending tasks, those of a failed copy.
+     */
+    void clear() {
+        tasks.clear();
+        batch.clear();
+        pendingTracked.clear();
+    }
+}
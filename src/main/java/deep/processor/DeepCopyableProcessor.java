@@ -0,0 +1,226 @@
+package deep.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a reflection-free {@code deep.DeepCopier} for every class or record annotated with {@code deep.DeepCopyable}.
+ * Violations of the requirements listed on {@code DeepCopyable} are reported as compilation errors on the offending element.
+ */
+@SupportedAnnotationTypes(DeepCopyableProcessor.ANNOTATION)
+public class DeepCopyableProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "deep.DeepCopyable";
+
+    private static final String SHARE_REFERENCE = "deep.ShareReference";
+    private static final String SKIP_COPY = "deep.SkipCopy";
+    private static final String COPIER_SUFFIX = "_DeepCopier";
+
+    private static final Set<String> ATOMIC_TYPES = Set.of(
+        "java.lang.String", "java.lang.Boolean", "java.lang.Byte", "java.lang.Short", "java.lang.Character",
+        "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double"
+    );
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+
+        if (annotation != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement type && isSupported(type)) {
+                    generate(type);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isSupported(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+            return error(type, "@DeepCopyable applies to classes and records only");
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+            return error(type, "@DeepCopyable does not support local and anonymous classes");
+        }
+        if (type.getKind() == ElementKind.RECORD) {
+            return isAccessible(type, type);
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return error(type, "@DeepCopyable class must not be abstract");
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            return error(type, "@DeepCopyable nested class must be static");
+        }
+
+        boolean hasNoArgCtor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                                            .anyMatch(ctor -> ctor.getParameters().isEmpty() && !ctor.getModifiers().contains(Modifier.PRIVATE));
+        if (!hasNoArgCtor) {
+            return error(type, "@DeepCopyable class needs a non-private constructor without parameters");
+        }
+
+        boolean valid = isAccessible(type, type);
+        for (VariableElement field : instanceFields(type)) {
+            if (field.getModifiers().contains(Modifier.FINAL)) {
+                valid = error(field, "@DeepCopyable class must not have final fields, consider a record instead");
+            } else if (!isAccessible(field, type)) {
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean isAccessible(Element element, TypeElement copied) {
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            return error(element, "@DeepCopyable requires %s to be non-private".formatted(element.getSimpleName()));
+        }
+        boolean samePackage = packageOf(element).equals(packageOf(copied));
+        if (!samePackage && !element.getModifiers().contains(Modifier.PUBLIC)) {
+            return error(element, "@DeepCopyable requires %s to be public or declared in package %s".formatted(element.getSimpleName(), packageOf(copied)));
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = packageOf(type);
+        String copierName = copierSimpleName(type);
+        String typeName = type.getQualifiedName().toString();
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName + "." + copierName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.printf("@javax.annotation.processing.Generated(\"%s\")%n", getClass().getName());
+            out.printf("@SuppressWarnings({\"rawtypes\", \"unchecked\"})%n");
+            out.printf("public final class %s implements deep.DeepCopier<%s> {%n%n", copierName, typeName);
+            out.printf("    @Override%n");
+            out.printf("    public %s copy(%s original, deep.CopyContext context) throws Exception {%n", typeName, typeName);
+
+            if (type.getKind() == ElementKind.RECORD) {
+                var args = new ArrayList<String>();
+                for (VariableElement field : instanceFields(type)) {
+                    args.add(valueExpression(field, "original." + field.getSimpleName() + "()"));
+                }
+                out.printf("        return new %s(%s);%n", typeName, String.join(", ", args));
+            } else {
+                out.printf("        %s copy = new %s();%n", typeName, typeName);
+                out.printf("        context.register(original, copy);%n");
+                for (VariableElement field : instanceFields(type)) {
+                    String name = field.getSimpleName().toString();
+                    out.printf("        copy.%s = %s;%n", name, valueExpression(field, "original." + name));
+                }
+                out.printf("        return copy;%n");
+            }
+
+            out.printf("    }%n");
+            out.printf("}%n");
+        } catch (IOException e) {
+            error(type, "Unable to generate copier: " + e.getMessage());
+        }
+    }
+
+    private String valueExpression(VariableElement field, String access) {
+        TypeMirror type = field.asType();
+
+        if (hasAnnotation(field, SKIP_COPY)) {
+            return defaultValueOf(type);
+        } else if (hasAnnotation(field, SHARE_REFERENCE) || isAtomic(type)) {
+            return access;
+        } else {
+            return "context.copyField(%s, \"%s\")".formatted(access, field.getSimpleName());
+        }
+    }
+
+    private static String defaultValueOf(TypeMirror type) {
+        return switch (type.getKind()) {
+            case BOOLEAN -> "false";
+            case BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE -> "(%s) 0".formatted(type);
+            default -> "null";
+        };
+    }
+
+    private static boolean isAtomic(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        var element = (TypeElement) ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.ENUM || ATOMIC_TYPES.contains(element.getQualifiedName().toString());
+    }
+
+    /**
+     * Non-static fields of the type and its superclasses, the subclass first, as {@code DeepCopyMaker} lists them.
+     */
+    private List<VariableElement> instanceFields(TypeElement type) {
+        var fields = new ArrayList<VariableElement>();
+
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!field.getModifiers().contains(Modifier.STATIC)) {
+                    fields.add(field);
+                }
+            }
+        }
+
+        return fields;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        var element = (TypeElement) ((DeclaredType) superclass).asElement();
+        String name = element.getQualifiedName().toString();
+        return name.equals("java.lang.Object") || name.equals("java.lang.Record") ? null : element;
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return element.getAnnotationMirrors().stream()
+                      .anyMatch(mirror -> ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName));
+    }
+
+    private String packageOf(Element element) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
+        return packageElement.getQualifiedName().toString();
+    }
+
+    private static String copierSimpleName(TypeElement type) {
+        var names = new ArrayList<String>();
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            names.add(0, current.getSimpleName().toString());
+        }
+        return String.join("_", names) + COPIER_SUFFIX;
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+}
@@ -0,0 +1,143 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestAdaptiveDeepCopy {
+
+    @Test
+    void should_copy_the_same_while_trying_orders_out() {
+        var options = CopyOptions.defaults().adaptive();
+        var original = Basket.of(20);
+
+        for (int i = 0; i < 30; i++) {
+            assertDistinctInstancesMatch(DeepCopyMaker.deepCopy(original, options), original);
+        }
+    }
+
+    @Test
+    void should_settle_on_an_order_per_root_class() {
+        var options = CopyOptions.defaults().adaptive();
+
+        for (int i = 0; i < 50; i++) {
+            DeepCopyMaker.deepCopy(Basket.of(10), options);
+        }
+        DeepCopyMaker.deepCopy(new ArrayList<>(List.of("x")), options);
+
+        var decisions = options.adaptiveDecisions();
+
+        assertThat(decisions).containsOnlyKeys(Basket.class, ArrayList.class);
+        var basketDecision = decisions.get(Basket.class);
+        assertThat(basketDecision.settled()).isTrue();
+        assertThat(basketDecision.copies()).isEqualTo(50);
+        assertThat(basketDecision.meanScanNanos()).isPositive();
+        assertThat(basketDecision.meanNodes()).isGreaterThan(10);
+        assertThat(basketDecision.meanElements()).isGreaterThanOrEqualTo(10);
+        assertThat(decisions.get(ArrayList.class).settled()).isFalse();
+    }
+
+    @Test
+    void should_weigh_scans_of_copies_against_copying() {
+        var selector = new AdaptiveSelector();
+        // the first copy pays for planning, and is not measured
+        selector.record(Basket.class, TraversalOrder.DEPTH_FIRST, 1_000_000, -1, 30, 10);
+
+        for (int i = 0; i < 5; i++) {
+            selector.record(Basket.class, TraversalOrder.DEPTH_FIRST, 100, 1_000, 30, 10);
+            selector.record(Basket.class, TraversalOrder.BREADTH_FIRST, 200, 100, 30, 10);
+            selector.record(Basket.class, TraversalOrder.SIBLINGS_FIRST, 300, 300, 30, 10);
+        }
+
+        var decision = selector.decisions().get(Basket.class);
+        assertThat(decision.settled()).isTrue();
+        assertThat(decision.order()).isEqualTo(TraversalOrder.BREADTH_FIRST);
+        assertThat(decision.meanNanos()).isEqualTo(200);
+        assertThat(decision.meanScanNanos()).isEqualTo(100);
+        assertThat(selector.scans(Basket.class)).isFalse();
+    }
+
+    @Test
+    void should_copy_graphs_without_containers_depth_first() {
+        var options = CopyOptions.defaults().adaptive();
+
+        DeepCopyMaker.deepCopy(new Item("a", new int[]{1}), options);
+        DeepCopyMaker.deepCopy(new Item("b", new int[]{2}), options);
+
+        var decision = options.adaptiveDecisions().get(Item.class);
+        assertThat(decision.settled()).isTrue();
+        assertThat(decision.order()).isEqualTo(TraversalOrder.DEPTH_FIRST);
+        assertThat(decision.meanElements()).isZero();
+    }
+
+    @Test
+    void should_copy_records_the_same_while_trying_orders_out() {
+        var options = CopyOptions.defaults().adaptive();
+        var original = new ArrayList<>(List.of(new StringBuilder("hello"), new StringBuilder("world!")));
+        var copies = new ArrayList<Measured>();
+
+        for (int i = 0; i < 30; i++) {
+            copies.add(DeepCopyMaker.deepCopy(new Measured(original), options));
+        }
+
+        assertThat(copies).allSatisfy(copy -> assertThat(copy.totalLength()).isEqualTo(11));
+    }
+
+    @Test
+    void should_share_statistics_with_derived_options() {
+        var adaptive = CopyOptions.defaults().adaptive();
+        var derived = adaptive.sharing(StringBuilder.class);
+
+        DeepCopyMaker.deepCopy(Basket.of(1), derived);
+
+        assertThat(adaptive.adaptiveDecisions()).containsKey(Basket.class);
+    }
+
+    @Test
+    void should_have_no_decisions_unless_adaptive() {
+        var options = CopyOptions.defaults().adaptive().traversing(TraversalOrder.BREADTH_FIRST);
+
+        DeepCopyMaker.deepCopy(Basket.of(1), options);
+
+        assertThat(options.adaptiveDecisions()).isEmpty();
+        assertThat(CopyOptions.defaults().adaptiveDecisions()).isEmpty();
+    }
+
+    static class Basket {
+        List<Item> items;
+
+        static Basket of(int size) {
+            var basket = new Basket();
+            basket.items = new ArrayList<>(IntStream.range(0, size).mapToObj(i -> new Item("item" + i, new int[]{i})).toList());
+            return basket;
+        }
+    }
+
+    /**
+     * Reads its component in its compact constructor.
+     */
+    record Measured(List<StringBuilder> texts, int totalLength) {
+        Measured(List<StringBuilder> texts) {
+            this(texts, 0);
+        }
+
+        Measured {
+            totalLength = texts.stream().mapToInt(StringBuilder::length).sum();
+        }
+    }
+
+    static class Item {
+        String name;
+        int[] counts;
+
+        Item(String name, int[] counts) {
+            this.name = name;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.DayOfWeek;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestCopyCache {
+
+    @Test
+    void should_return_private_copies_of_cached_source() {
+        var cache = CopyCache.withMaxEntries(4);
+        var source = Settings.sample();
+
+        var first = cache.copyOf(source);
+        var second = cache.copyOf(source);
+
+        assertDistinctInstancesMatch(first, source);
+        assertDistinctInstancesMatch(second, source);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.values).isNotSameAs(first.values);
+        assertThat(cache.stats()).isEqualTo(new CopyCacheStats(1, 1, 0, 1));
+    }
+
+    @Test
+    void should_keep_serving_cached_state_until_version_changes() {
+        var cache = CopyCache.withMaxEntries(4);
+        var source = Settings.sample();
+        cache.copyOf(source, 1);
+
+        source.values.put("timeout", "30");
+
+        assertThat(cache.copyOf(source, 1).values).containsEntry("timeout", "10");
+        assertThat(cache.copyOf(source, 2).values).containsEntry("timeout", "30");
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void should_take_new_template_after_invalidation() {
+        var cache = CopyCache.withMaxEntries(4);
+        var source = Settings.sample();
+        cache.copyOf(source);
+
+        source.name = "changed";
+        cache.invalidate(source);
+
+        assertThat(cache.copyOf(source).name).isEqualTo("changed");
+    }
+
+    @Test
+    void should_evict_least_recently_used_source() {
+        var cache = CopyCache.withMaxEntries(2);
+        var a = Settings.sample();
+        var b = Settings.sample();
+        var c = Settings.sample();
+
+        cache.copyOf(a);
+        cache.copyOf(b);
+        cache.copyOf(a);
+        cache.copyOf(c);
+        cache.copyOf(a);
+
+        assertThat(cache.stats()).isEqualTo(new CopyCacheStats(2, 3, 1, 2));
+        cache.copyOf(b);
+        assertThat(cache.stats().misses()).isEqualTo(4);
+    }
+
+    @Test
+    void should_preserve_shared_references_and_cycles_of_source() {
+        var cache = CopyCache.withMaxEntries(2);
+        var shared = new ArrayList<String>(List.of("x"));
+        var source = new ArrayList<Object>(List.of(shared, shared));
+        source.add(source);
+
+        cache.copyOf(source);
+        var copy = cache.copyOf(source);
+
+        assertThat(copy.get(0)).isNotSameAs(shared).isSameAs(copy.get(1));
+        assertThat(copy.get(2)).isSameAs(copy);
+    }
+
+    @Test
+    void should_not_keep_sources_alive() throws IllegalAccessException {
+        var cache = CopyCache.withMaxEntries(4);
+        var team = new Team();
+        team.members.add(new Member(team));
+        team.onDuty.put(DayOfWeek.MONDAY, new Member(team));
+
+        var copy = cache.copyOf(team);
+
+        assertThat(copy.members.getFirst().team).isSameAs(copy);
+        assertThat(copy.onDuty.get(DayOfWeek.MONDAY).team).isSameAs(copy);
+        assertThat(stronglyReachableFrom(cache)).noneMatch(reached -> reached == team);
+    }
+
+    @Test
+    void should_copy_sources_that_are_not_copied_without_template() {
+        var cache = CopyCache.withMaxEntries(4);
+        var text = new String("text");
+
+        assertThat(cache.copyOf(text)).isSameAs(text);
+        assertThat(cache.stats()).isEqualTo(new CopyCacheStats(0, 0, 0, 0));
+    }
+
+    @Test
+    void should_reject_non_positive_size() {
+        assertThatThrownBy(() -> CopyCache.withMaxEntries(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static class Settings {
+        String name;
+        Map<String, String> values;
+
+        static Settings sample() {
+            var settings = new Settings();
+            settings.name = "service";
+            settings.values = new HashMap<>(Map.of("timeout", "10", "retries", "3"));
+            return settings;
+        }
+    }
+
+    /**
+     * Objects reachable from the root without going through weak references, looking into JDK classes only
+     * through the collection and map interfaces. Deterministic, unlike waiting for the garbage collector.
+     */
+    private static Set<Object> stronglyReachableFrom(Object root) throws IllegalAccessException {
+        Set<Object> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        var pending = new ArrayDeque<Object>(List.of(root));
+
+        while (!pending.isEmpty()) {
+            Object node = pending.poll();
+            if (!reached.add(node)) {
+                continue;
+            }
+
+            var children = new ArrayList<Object>();
+            if (node instanceof Collection<?> collection) {
+                children.addAll(collection);
+            } else if (node instanceof Map<?, ?> map) {
+                children.addAll(map.keySet());
+                children.addAll(map.values());
+            } else if (node instanceof Object[] array) {
+                children.addAll(Arrays.asList(array));
+            }
+            // Reference and other JDK classes declare no fields seen here, so weak referents are never followed
+            for (Class<?> type = node.getClass(); type != null && type.getName().startsWith("deep."); type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        field.setAccessible(true);
+                        children.add(field.get(node));
+                    }
+                }
+            }
+
+            children.stream().filter(Objects::nonNull).forEach(pending::add);
+        }
+        return reached;
+    }
+
+    static class Team {
+        ArrayDeque<Member> members = new ArrayDeque<>();
+        EnumMap<DayOfWeek, Member> onDuty = new EnumMap<>(DayOfWeek.class);
+    }
+
+    static class Member {
+        Team team;
+
+        Member(Team team) {
+            this.team = team;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class TestDeepCopyFailureDiagnostics {
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_locate_offending_object_in_any_order(TraversalOrder order) {
+        var original = Catalog.withBrokenCustomerAt(17);
+
+        var failure = catchThrowableOfType(
+            DeepCopyException.class,
+            () -> DeepCopyMaker.deepCopy(original, CopyOptions.defaults().traversing(order))
+        );
+
+        assertThat(failure.getPath()).isEqualTo("root.orders[17].customer.address");
+        assertThat(failure.getFailingClass()).isEqualTo(Address.class);
+        assertThat(failure.getRootClass()).isEqualTo(Catalog.class);
+        assertThat(failure.getInstantiationAttempts()).containsExactly(
+            "Address(String) with default arguments: java.lang.IllegalArgumentException: street required"
+        );
+        assertThat(failure).hasMessage(
+            "Unable to make deep copy of deep.TestDeepCopyFailureDiagnostics$Catalog: Failed instantiation"
+            + " at root.orders[17].customer.address (deep.TestDeepCopyFailureDiagnostics$Address);"
+            + " tried Address(String) with default arguments: java.lang.IllegalArgumentException: street required"
+        );
+    }
+
+    @Test
+    void should_locate_offending_object_in_arrays_and_dedicated_copiers() {
+        var customers = new Customer[]{new Customer(), Customer.broken()};
+        var queue = new ArrayDeque<Object>(List.of("first", Customer.broken()));
+
+        assertThat(catchThrowableOfType(DeepCopyException.class, () -> DeepCopyMaker.deepCopy(customers)).getPath())
+            .isEqualTo("root[1].address");
+        assertThat(catchThrowableOfType(DeepCopyException.class, () -> DeepCopyMaker.deepCopy(queue)).getPath())
+            .isEqualTo("root[*].address");
+    }
+
+    @Test
+    void should_locate_exceeded_size_limit() {
+        var original = new Link[2 * DeepCopyMaker.MAX_OBJECT_GRAPH_SIZE];
+        for (int i = 0; i < original.length; i++) {
+            original[i] = new Link();
+        }
+
+        var failure = catchThrowableOfType(DeepCopyException.class, () -> DeepCopyMaker.deepCopy(original));
+
+        assertThat(failure.getMessage()).startsWith("Unable to make deep copy of [Ldeep.TestDeepCopyFailureDiagnostics$Link;: Maximum copy size (3000) exceeded at root[");
+        assertThat(failure.getPath()).matches("root\\[\\d+](\\.next)?");
+        assertThat(failure.getCause()).isNull();
+        assertThat(failure.getInstantiationAttempts()).isEmpty();
+    }
+
+    @Test
+    void should_never_describe_copied_objects_by_to_string() {
+        var original = new Unprintable();
+        original.customer = Customer.broken();
+
+        assertThatThrownBy(() -> DeepCopyMaker.deepCopy(original))
+            .isInstanceOf(DeepCopyException.class)
+            .hasMessageContaining("$Unprintable")
+            .hasMessageContaining("root.customer.address");
+        assertThatThrownBy(() -> DeepCopyMaker.prototype(original))
+            .isInstanceOf(DeepCopyException.class)
+            .hasMessageContaining("root.customer.address");
+        assertThatThrownBy(() -> DeepCopyMaker.copyStream(Stream.of(original)).toList())
+            .isInstanceOf(DeepCopyException.class)
+            .hasMessageContaining("root.customer.address");
+    }
+
+    @Test
+    void should_locate_offending_object_when_recording_prototype() {
+        var original = Catalog.withBrokenCustomerAt(3);
+
+        var failure = catchThrowableOfType(DeepCopyException.class, () -> DeepCopyMaker.prototype(original));
+
+        assertThat(failure.getPath()).isEqualTo("root.orders[3].customer.address");
+        assertThat(failure.getFailingClass()).isEqualTo(Address.class);
+    }
+
+    static class Catalog {
+        List<Order> orders = new ArrayList<>();
+
+        static Catalog withBrokenCustomerAt(int index) {
+            var catalog = new Catalog();
+            for (int i = 0; i < 20; i++) {
+                catalog.orders.add(new Order(i == index ? Customer.broken() : new Customer()));
+            }
+            return catalog;
+        }
+    }
+
+    static class Order {
+        final Customer customer;
+
+        Order(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    static class Customer {
+        String name = "name";
+        Address address;
+
+        static Customer broken() {
+            var customer = new Customer();
+            customer.address = new Address("street");
+            return customer;
+        }
+    }
+
+    /**
+     * Refuses default arguments and has no canonical constructor to fall back on.
+     */
+    static class Address {
+        private final String street;
+        private final int number;
+
+        Address(String street) {
+            if (street == null) {
+                throw new IllegalArgumentException("street required");
+            }
+            this.street = street;
+            this.number = 1;
+        }
+    }
+
+    static class Link {
+        Link next;
+    }
+
+    static class Unprintable {
+        Customer customer;
+
+        @Override
+        public String toString() {
+            throw new UnsupportedOperationException("toString must not be called");
+        }
+    }
+}
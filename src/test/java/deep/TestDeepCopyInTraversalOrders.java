@@ -0,0 +1,186 @@
+package deep;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyInTraversalOrders {
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_copy_nested_structure_in_any_order(TraversalOrder order) {
+        var original = new ArrayList<Item>();
+        for (int i = 0; i < 5; i++) {
+            original.add(new Item("item-" + i, new Detail(i, new int[]{i, i * 2}), new HashMap<>(Map.of("k", i))));
+        }
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().traversing(order));
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(copy.get(0).detail).isNotSameAs(original.get(0).detail);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_preserve_cycles_and_sharing_in_any_order(TraversalOrder order) {
+        var original = TestDeepCopyOnCircularRefs.Car.makeCircle(100);
+        var shared = new ArrayList<Object>(List.of(original, original));
+
+        var copy = DeepCopyMaker.deepCopy(shared, CopyOptions.defaults().traversing(order));
+
+        assertDistinctInstancesMatch(copy, shared);
+        assertThat(copy.get(0)).isSameAs(copy.get(1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_combine_order_with_depth_limit(TraversalOrder order) {
+        var detail = new Detail(1, new int[]{1});
+        var original = new ArrayList<>(List.of(new Item("a", detail, new HashMap<>())));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().traversing(order).limitedToDepth(1));
+
+        assertThat(copy.get(0)).isNotSameAs(original.get(0));
+        assertThat(copy.get(0).detail).isSameAs(detail);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_pass_complete_copies_to_constructors_in_any_order(TraversalOrder order) {
+        var queuedFirst = new StringBuilder("queued");
+        var original = new ArrayList<Object>(List.of(
+            new Measured(new StringBuilder("hello"), 5),
+            queuedFirst,
+            new Measured(queuedFirst, 6),
+            new Snapshot(new ArrayList<>(List.of("a", "b"))),
+            new Label(new StringBuilder("label"), 5)
+        ));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().traversing(order));
+
+        assertThat(((Measured) copy.get(0)).length()).isEqualTo(5);
+        assertThat(((Measured) copy.get(2)).length()).isEqualTo(6);
+        assertThat(((Measured) copy.get(2)).text()).isSameAs(copy.get(1));
+        assertThat(((Snapshot) copy.get(3)).names()).containsExactly("a", "b");
+        assertThat(((Label) copy.get(4)).length).isEqualTo(5);
+        assertThat(copy.get(1)).hasToString("queued");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_allocate_copies_in_order(TraversalOrder order) {
+        var a = new Probe("a", new Probe("a1", new Probe("a11", null, null), null), new Probe("a2", null, null));
+        var b = new Probe("b", new Probe("b1", null, null), new Probe("b2", null, null));
+        var original = new Probe("root", a, b);
+
+        assertThat(allocationsOfCopy(original, order)).containsExactly(switch (order) {
+            case DEPTH_FIRST -> new String[]{"root", "a", "a1", "a11", "a2", "b", "b1", "b2"};
+            case BREADTH_FIRST -> new String[]{"root", "a", "b", "a1", "a2", "b1", "b2", "a11"};
+            case SIBLINGS_FIRST -> new String[]{"root", "a", "b", "a1", "a2", "a11", "b1", "b2"};
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(TraversalOrder.class)
+    void should_copy_constructor_arguments_completely_first(TraversalOrder order) {
+        var a = new Probe("a", new Probe("a1", null, null), null);
+        var wrapped = new Wrapped(new Probe("c", new Probe("c1", null, null), null));
+        var original = new Probe("root", a, wrapped);
+
+        // the record reads the name of its component, and of the component's child, when constructed
+        assertThat(allocationsOfCopy(original, order)).containsExactly(switch (order) {
+            case DEPTH_FIRST -> new String[]{"root", "a", "a1", "c", "c1", "wrapped c/c1"};
+            case BREADTH_FIRST, SIBLINGS_FIRST -> new String[]{"root", "a", "c", "c1", "wrapped c/c1", "a1"};
+        });
+    }
+
+    private static List<String> allocationsOfCopy(Probe original, TraversalOrder order) {
+        var options = CopyOptions.defaults().traversing(order);
+        // the first copy also probes how to instantiate the class
+        DeepCopyMaker.deepCopy(original, options);
+        Probe.allocations.clear();
+
+        DeepCopyMaker.deepCopy(original, options);
+
+        return Probe.allocations.stream().map(allocated -> allocated instanceof Probe probe ? probe.name : (String) allocated).toList();
+    }
+
+    /**
+     * Logs its copies as they are allocated, named once filled.
+     */
+    static class Probe {
+        static final List<Object> allocations = new ArrayList<>();
+
+        String name;
+        Probe first;
+        Object second;
+
+        Probe() {
+            allocations.add(this);
+        }
+
+        Probe(String name, Probe first, Object second) {
+            this.name = name;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    record Wrapped(Probe content) {
+        Wrapped {
+            Probe.allocations.add("wrapped " + content.name + "/" + content.first.name);
+        }
+    }
+
+    record Detail(int level, int[] values) {}
+
+    /**
+     * Reads a component in its compact constructor.
+     */
+    record Measured(StringBuilder text, int length) {
+        Measured {
+            length = text.length();
+        }
+    }
+
+    /**
+     * Makes a defensive copy of a component.
+     */
+    record Snapshot(List<String> names) {
+        Snapshot {
+            names = List.copyOf(names);
+        }
+    }
+
+    /**
+     * Rejects the default arguments, so it is copied through its canonical constructor, which reads an argument.
+     */
+    static class Label {
+        final StringBuilder text;
+        final int length;
+
+        Label(StringBuilder text, int length) {
+            this.text = text;
+            this.length = text.length();
+        }
+    }
+
+    static class Item {
+        String name;
+        Detail detail;
+        Map<String, Integer> attributes;
+
+        Item(String name, Detail detail, Map<String, Integer> attributes) {
+            this.name = name;
+            this.detail = detail;
+            this.attributes = attributes;
+        }
+    }
+}
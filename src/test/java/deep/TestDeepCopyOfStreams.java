@@ -0,0 +1,169 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestDeepCopyOfStreams {
+
+    @Test
+    void should_copy_stream_elements_lazily() {
+        var pulled = new AtomicInteger();
+        var source = Stream.iterate(0, i -> i + 1)
+                           .peek(i -> pulled.incrementAndGet())
+                           .map(i -> new Item(i, new ArrayList<>(List.of("v" + i))));
+
+        var copies = DeepCopyMaker.copyStream(source).limit(3).toList();
+
+        assertThat(pulled).hasValue(3);
+        assertThat(copies).extracting(item -> item.id).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void should_copy_iterator_elements() {
+        var originals = List.of(new Item(1, new ArrayList<>(List.of("a"))), new Item(2, new ArrayList<>(List.of("b"))));
+
+        var copies = DeepCopyMaker.copyIterator(originals.iterator());
+
+        for (Item original : originals) {
+            assertThat(copies.hasNext()).isTrue();
+            assertDistinctInstancesMatch(copies.next(), original);
+        }
+        assertThat(copies.hasNext()).isFalse();
+    }
+
+    @Test
+    void should_copy_each_element_on_its_own_by_default() {
+        var tags = new ArrayList<>(List.of("shared"));
+        var originals = List.of(new Item(1, tags), new Item(2, tags));
+
+        var copies = DeepCopyMaker.copyStream(originals.stream()).toList();
+
+        assertThat(copies.get(0).tags).isNotSameAs(tags).isNotSameAs(copies.get(1).tags);
+    }
+
+    @Test
+    void should_share_copies_within_window_only() {
+        var tags = new ArrayList<>(List.of("shared"));
+        var originals = IntStream.range(0, 4).mapToObj(i -> new Item(i, tags)).toList();
+
+        var copies = DeepCopyMaker.copyStream(originals.stream(), CopyOptions.defaults().sharingAcross(2)).toList();
+
+        assertThat(copies.get(0).tags).isNotSameAs(tags).isSameAs(copies.get(1).tags);
+        assertThat(copies.get(2).tags).isSameAs(copies.get(3).tags).isNotSameAs(copies.get(1).tags);
+    }
+
+    @Test
+    void should_copy_parallel_stream_in_parallel() {
+        var originals = IntStream.range(0, 10_000).mapToObj(i -> new Item(i, new ArrayList<>(List.of("v" + i)))).toList();
+
+        var copies = DeepCopyMaker.copyStream(originals.parallelStream());
+
+        assertThat(copies.isParallel()).isTrue();
+        var collected = copies.toList();
+        assertThat(collected).hasSize(originals.size());
+        for (int i = 0; i < originals.size(); i++) {
+            assertDistinctInstancesMatch(collected.get(i), originals.get(i));
+        }
+    }
+
+    @Test
+    void should_close_source_with_copies() {
+        var closed = new AtomicBoolean();
+
+        try (var copies = DeepCopyMaker.copyStream(Stream.of("a").onClose(() -> closed.set(true)))) {
+            assertThat(copies.toList()).containsExactly("a");
+        }
+
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void should_not_promise_non_null_copies_when_types_can_be_skipped() {
+        Object[] originals = {new Item(1, new ArrayList<>()), new StringBuilder("skipped")};
+        var source = StreamSupport.stream(Spliterators.spliterator(originals, Spliterator.ORDERED | Spliterator.NONNULL), false);
+
+        var copies = DeepCopyMaker.copyStream(source, CopyOptions.defaults().skipping(StringBuilder.class)).spliterator();
+
+        assertThat(copies.hasCharacteristics(Spliterator.NONNULL)).isFalse();
+        var collected = new ArrayList<>();
+        copies.forEachRemaining(collected::add);
+        assertThat(collected).hasSize(2).element(1).isNull();
+    }
+
+    @Test
+    void should_leave_nothing_of_failed_element_to_next_ones() {
+        var tags = new ArrayList<>(List.of("shared"));
+        var failing = new Entry(tags, new Part(new Broken("first")), new Broken("second"));
+        var next = new Entry(tags, new Part(null), null);
+        var options = CopyOptions.defaults().traversing(TraversalOrder.BREADTH_FIRST).sharingAcross(10);
+
+        var copies = DeepCopyMaker.copyIterator(List.of(failing, next).iterator(), options);
+
+        assertThatThrownBy(copies::next).isInstanceOf(DeepCopyException.class).hasMessageContaining("at root.broken");
+        // the part of the failed element, still queued to be filled, would fail again here
+        var copy = copies.next();
+        assertThat(copy.tags).isNotSameAs(tags).containsExactly("shared");
+        assertThat(copy.part).isNotNull().isNotSameAs(next.part);
+    }
+
+    @Test
+    void should_reject_non_positive_window() {
+        assertThatThrownBy(() -> CopyOptions.defaults().sharingAcross(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static class Entry {
+        List<String> tags;
+        Part part;
+        Broken broken;
+
+        Entry(List<String> tags, Part part, Broken broken) {
+            this.tags = tags;
+            this.part = part;
+            this.broken = broken;
+        }
+    }
+
+    static class Part {
+        Broken broken;
+
+        Part(Broken broken) {
+            this.broken = broken;
+        }
+    }
+
+    // cannot be copied: its only constructor rejects the default arguments
+    static class Broken {
+        String name;
+
+        Broken(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("name required");
+            }
+            this.name = name;
+        }
+    }
+
+    static class Item {
+        int id;
+        List<String> tags;
+
+        Item(int id, List<String> tags) {
+            this.id = id;
+            this.tags = tags;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
 import static deep.Util.assertDistinctInstancesMatch;
@@ -88,6 +89,50 @@ class TestDeepCopyOnCircularRefs {
         }
     }
 
+    @Test
+    void should_copy_long_chain_with_little_stack() throws InterruptedException {
+        Car original = Car.makeCircle(1000);
+        var copy = new AtomicReference<Car>();
+        var failure = new AtomicReference<Throwable>();
+
+        var thread = new Thread(null, () -> {
+            try {
+                copy.set(DeepCopyMaker.deepCopy(original));
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "small-stack", 512 * 1024);
+        thread.start();
+        thread.join();
+
+        assertThat(failure.get()).isNull();
+        assertDistinctInstancesMatch(copy.get(), original);
+    }
+
+    @Test
+    void should_pass_complete_copies_to_constructors_beyond_recursion_depth() {
+        Car head = Car.makeCircle(2 * DeepCopyMaker.MAX_RECURSION_DEPTH);
+        Car deep = head;
+        for (int i = 0; i < DeepCopyMaker.MAX_RECURSION_DEPTH + 10; i++) {
+            deep = deep.next;
+        }
+        Object[] original = {head, new Successor(deep)};
+
+        Object[] copy = DeepCopyMaker.deepCopy(original);
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(((Successor) copy[1]).car()).isNotSameAs(deep);
+    }
+
+    /**
+     * Reads its argument in the constructor, which fails on a copy that is not filled yet.
+     */
+    record Successor(Car car, int nextId) {
+        Successor(Car car) {
+            this(car, car.next.id);
+        }
+    }
+
     static class Car {
         final int id;
         Car next;
@@ -0,0 +1,65 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyOnFinalTypedFields {
+
+    @Test
+    void should_copy_fields_of_final_types() {
+        var original = new Holder();
+        original.point = new Point(1, 2);
+        original.values = new int[]{3, 4, 5};
+        original.sameValues = original.values;
+        original.matrix = new long[][]{{1L}, {2L, 3L}};
+        original.names = new String[]{"a", null, "c"};
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(copy.point).isNotSameAs(original.point);
+        assertThat(copy.values).isNotSameAs(original.values).isSameAs(copy.sameValues);
+        assertThat(copy.matrix[1]).isNotSameAs(original.matrix[1]);
+        assertThat(copy.names).isNotSameAs(original.names);
+    }
+
+    @Test
+    void should_copy_self_referencing_final_type() {
+        var original = new Link();
+        original.next = new Link();
+        original.next.next = original;
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.next.next).isSameAs(copy);
+    }
+
+    @Test
+    void should_copy_covariant_array_in_polymorphic_field() {
+        var original = new Holder();
+        original.anything = new CharSequence[]{new StringBuilder("x")};
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.anything).isInstanceOf(CharSequence[].class).isNotSameAs(original.anything);
+        assertThat(((CharSequence[]) copy.anything)[0]).isNotSameAs(((CharSequence[]) original.anything)[0]);
+    }
+
+    record Point(int x, int y) {}
+
+    static final class Holder {
+        Point point;
+        int[] values;
+        int[] sameValues;
+        long[][] matrix;
+        String[] names;
+        Object[] anything;
+    }
+
+    static final class Link {
+        Link next;
+    }
+}
@@ -0,0 +1,106 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyOnJdkStorageTypes {
+
+    @Test
+    void should_copy_direct_buffer_into_its_own_memory() {
+        var original = ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+        original.putInt(0x01020304).putInt(7);
+        original.flip().position(2);
+
+        var copy = DeepCopyMaker.deepCopy(original);
+        original.put(0, (byte) 99);
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.isDirect()).isTrue();
+        assertThat(copy.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+        assertThat(copy.position()).isEqualTo(2);
+        assertThat(copy.limit()).isEqualTo(8);
+        assertThat(copy.capacity()).isEqualTo(16);
+        assertThat(copy.get(0)).isEqualTo((byte) 4);
+        assertThat(copy.getInt(4)).isEqualTo(7);
+    }
+
+    @Test
+    void should_keep_heap_buffer_read_only() {
+        var original = ByteBuffer.wrap(new byte[]{1, 2, 3, 4}).asReadOnlyBuffer();
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.isDirect()).isFalse();
+        assertThat(copy.isReadOnly()).isTrue();
+        assertThat(copy.order()).isEqualTo(ByteOrder.BIG_ENDIAN);
+        assertThat(DeepEquality.deepEquals(original, copy)).isTrue();
+    }
+
+    @Test
+    void should_copy_bit_set() {
+        var original = new BitSet();
+        original.set(3);
+        original.set(200);
+
+        var copy = DeepCopyMaker.deepCopy(original);
+        original.clear(3);
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.get(3)).isTrue();
+        assertThat(copy.get(200)).isTrue();
+    }
+
+    @Test
+    void should_copy_enum_set_and_enum_map() {
+        var set = EnumSet.of(Color.RED, Color.BLUE);
+        var map = new EnumMap<Color, List<String>>(Color.class);
+        map.put(Color.GREEN, new ArrayList<>(List.of("leaf")));
+
+        var setCopy = DeepCopyMaker.deepCopy(set);
+        var mapCopy = DeepCopyMaker.deepCopy(map);
+
+        assertThat(setCopy).isNotSameAs(set).containsExactly(Color.RED, Color.BLUE);
+        assertThat(mapCopy).isNotSameAs(map).isEqualTo(map);
+        assertThat(mapCopy.get(Color.GREEN)).isNotSameAs(map.get(Color.GREEN));
+        assertThat(DeepEquality.deepEquals(map, mapCopy)).isTrue();
+    }
+
+    @Test
+    void should_copy_enum_map_referring_to_itself() {
+        var original = new EnumMap<Color, Object>(Color.class);
+        original.put(Color.RED, original);
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.get(Color.RED)).isSameAs(copy);
+    }
+
+    @Test
+    void should_copy_array_deque_elements() {
+        var shared = new StringBuilder("shared");
+        var original = new ArrayDeque<Object>(List.of(shared, "text", shared));
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy).hasSize(3);
+        var first = copy.pollFirst();
+        assertThat(first).isNotSameAs(shared).hasToString("shared");
+        assertThat(copy.pollLast()).isSameAs(first);
+        assertThat(DeepEquality.deepEquals(original, DeepCopyMaker.deepCopy(original))).isTrue();
+    }
+
+    enum Color {
+        RED, GREEN, BLUE
+    }
+}
@@ -1,11 +1,13 @@
 package deep;
 
+import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 
 import java.util.Date;
 import java.util.Objects;
 
 import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TestDeepCopyOnObjectsWithTrickyStructure {
@@ -14,10 +16,17 @@ class TestDeepCopyOnObjectsWithTrickyStructure {
     void should_fail_when_ctor_check_nulls_and_is_not_canonical() {
         var original = new TrickyObjectA(new Object());
         assertThatThrownBy(() -> DeepCopyMaker.deepCopy(original))
-            .isExactlyInstanceOf(IllegalStateException.class)
+            .isExactlyInstanceOf(DeepCopyException.class)
             .hasMessageStartingWith("Unable to make deep copy of ")
-            .hasMessageContaining("$TrickyObjectA@")
-            .hasCauseInstanceOf(NoSuchMethodException.class);
+            .hasMessageContaining("$TrickyObjectA")
+            .hasMessageNotContaining("@")
+            .hasCauseInstanceOf(NoSuchMethodException.class)
+            .extracting(e -> ((DeepCopyException) e).getInstantiationAttempts())
+            .asInstanceOf(InstanceOfAssertFactories.LIST)
+            .satisfiesExactly(
+                bare -> assertThat(bare).asString().startsWith("TrickyObjectA(Object) with default arguments: java.lang.NullPointerException"),
+                canonical -> assertThat(canonical).asString().startsWith("TrickyObjectA(int, Object) with copied field values: java.lang.NoSuchMethodException")
+            );
     }
 
     @Test
@@ -25,9 +34,11 @@ class TestDeepCopyOnObjectsWithTrickyStructure {
         var original = new TrickyObjectC(0, 0);
 
         assertThatThrownBy(() -> DeepCopyMaker.deepCopy(original))
-            .isExactlyInstanceOf(IllegalStateException.class)
+            .isExactlyInstanceOf(DeepCopyException.class)
             .hasMessageStartingWith("Unable to make deep copy of ")
-            .hasMessageContaining("$TrickyObjectC@")
+            .hasMessageContaining("$TrickyObjectC")
+            .hasMessageContaining("tried TrickyObjectC(int) with default arguments: java.lang.IllegalArgumentException: intentional error")
+            .hasMessageNotContaining("@")
             .hasStackTraceContaining("java.lang.IllegalArgumentException: intentional error");
     }
 
@@ -0,0 +1,88 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyOnTreeShapedTypes {
+
+    @Test
+    void should_duplicate_shared_node_of_declared_tree_type() {
+        var leaf = new Leaf(7, "seven");
+        var original = new ArrayList<>(List.of(leaf, leaf));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().assumingTree(Leaf.class));
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(copy.get(0)).isNotSameAs(leaf).isNotSameAs(copy.get(1));
+    }
+
+    @Test
+    void should_keep_shared_node_of_undeclared_type() {
+        var leaf = new Leaf(7, "seven");
+        var original = new ArrayList<>(List.of(leaf, leaf));
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.get(0)).isNotSameAs(leaf).isSameAs(copy.get(1));
+    }
+
+    @Test
+    void should_honour_tree_shaped_annotation() {
+        var leaf = new AnnotatedLeaf();
+        leaf.values = new int[]{1, 2, 3};
+        var original = new AnnotatedLeaf[]{leaf, leaf};
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(copy[0]).isNotSameAs(copy[1]);
+    }
+
+    @Test
+    void should_keep_tracking_cyclic_types_even_when_tree_assumed() {
+        var original = TestDeepCopyOnCircularRefs.Car.makeCircle(10);
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().assumingTree());
+
+        assertDistinctInstancesMatch(copy, original);
+    }
+
+    @Test
+    void should_copy_tree_shaped_graph_when_tree_assumed_for_call() {
+        var original = new Branch(new Leaf(1, "a"), new Leaf(2, "b"));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().assumingTree());
+
+        assertDistinctInstancesMatch(copy, original);
+    }
+
+    static final class Leaf {
+        int id;
+        String name;
+
+        Leaf(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    static final class Branch {
+        Leaf left;
+        Leaf right;
+
+        Branch(Leaf left, Leaf right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    @TreeShaped
+    static final class AnnotatedLeaf {
+        int[] values;
+    }
+}
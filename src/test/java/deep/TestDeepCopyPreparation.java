@@ -0,0 +1,147 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyPreparation {
+
+    // counts static initializations and constructor calls of Touchy
+    static int touched;
+
+    @Test
+    void should_plan_classes_reachable_from_prepared_one() {
+        var options = CopyOptions.defaults().assumingTree(Order.class);
+
+        options.prepare(Order.class);
+
+        assertThat(options.plans().plannedClassNames())
+            .contains(Order.class.getName(), Line.class.getName(), Line[].class.getName());
+    }
+
+    @Test
+    void should_copy_the_same_after_preparation() {
+        var options = CopyOptions.defaults().assumingTree(Line.class).prepare(Order.class);
+        var original = new Order("o-1", new Line("apple", 3), new Line("pear", 1));
+
+        var copy = DeepCopyMaker.deepCopy(original, options);
+
+        assertDistinctInstancesMatch(copy, original);
+    }
+
+    @Test
+    void should_replay_classes_recorded_in_training_run(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("copy-plans.txt");
+        var training = CopyOptions.withFreshPlans();
+        DeepCopyMaker.deepCopy(new ArrayList<>(List.of(new Order("o-1", new Line("apple", 3)))), training);
+        training.savePlannedClasses(file);
+
+        var startup = CopyOptions.withFreshPlans();
+        int prepared = startup.prepareFrom(file);
+
+        assertThat(prepared).isEqualTo(Files.readAllLines(file).size());
+        assertThat(startup.plans().plannedClassNames()).containsAll(training.plans().plannedClassNames());
+    }
+
+    @Test
+    void should_ignore_unknown_classes_and_comments_when_replaying(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("copy-plans.txt");
+        Files.write(file, List.of("# recorded before a refactoring", "deep.NoLongerThere", "", Order.class.getName()));
+
+        var options = CopyOptions.withFreshPlans();
+
+        assertThat(options.prepareFrom(file)).isEqualTo(1);
+        assertThat(options.plans().plannedClassNames()).contains(Order.class.getName(), Line.class.getName());
+    }
+
+    @Test
+    void should_prepare_classes_of_package() throws IOException {
+        var options = CopyOptions.withFreshPlans();
+
+        options.preparePackage("deep");
+
+        assertThat(options.plans().plannedClassNames()).contains(Order.class.getName(), Guarded.class.getName());
+    }
+
+    @Test
+    void should_neither_initialize_nor_instantiate_classes_of_package() throws IOException {
+        var options = CopyOptions.withFreshPlans();
+
+        options.preparePackage("deep");
+
+        assertThat(options.plans().plannedClassNames()).contains(Touchy.class.getName());
+        assertThat(touched).isZero();
+    }
+
+    @Test
+    void should_not_retry_constructor_rejecting_nulls_once_prepared() {
+        var options = CopyOptions.withFreshPlans().prepare(Guarded.class);
+        int rejectedWhilePreparing = Guarded.rejected;
+
+        var original = new Guarded("name");
+        var first = DeepCopyMaker.deepCopy(original, options);
+        var second = DeepCopyMaker.deepCopy(original, options);
+
+        assertThat(rejectedWhilePreparing).isPositive();
+        assertThat(Guarded.rejected).isEqualTo(rejectedWhilePreparing);
+        assertDistinctInstancesMatch(first, original);
+        assertDistinctInstancesMatch(second, original);
+    }
+
+    static class Order {
+        String id;
+        Line[] lines;
+
+        Order(String id, Line... lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+    }
+
+    static class Line {
+        String product;
+        int quantity;
+
+        Line(String product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+
+    static class Guarded {
+        static int rejected;
+
+        final String name;
+
+        Guarded(String name) {
+            if (name == null) {
+                rejected++;
+            }
+            this.name = Objects.requireNonNull(name);
+        }
+    }
+
+    /**
+     * Only planned by a package scan, never copied.
+     */
+    static class Touchy {
+        static {
+            touched++;
+        }
+
+        String name;
+
+        Touchy() {
+            touched++;
+        }
+    }
+}
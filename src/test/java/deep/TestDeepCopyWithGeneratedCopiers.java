@@ -0,0 +1,101 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDeepCopyWithGeneratedCopiers {
+
+    @Test
+    void should_generate_copiers_for_annotated_types() throws Exception {
+        assertThat(Class.forName("deep.TestDeepCopyWithGeneratedCopiers_Customer_DeepCopier"))
+            .isAssignableTo(DeepCopier.class);
+        assertThat(Class.forName("deep.TestDeepCopyWithGeneratedCopiers_Address_DeepCopier"))
+            .isAssignableTo(DeepCopier.class);
+    }
+
+    @Test
+    void should_copy_with_generated_copier() {
+        var original = new Customer();
+        original.name = "Ann";
+        original.age = 33;
+        original.address = new Address("Main St.", 7);
+        original.tags = new ArrayList<>(List.of("vip"));
+        original.scores = new int[]{1, 2};
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(copy.address).isNotSameAs(original.address);
+        assertThat(copy.tags).isNotSameAs(original.tags);
+        assertThat(copy.scores).isNotSameAs(original.scores);
+    }
+
+    @Test
+    void should_copy_without_reflective_access_to_fields() {
+        var options = CopyOptions.withFreshPlans();
+        var original = new Customer();
+        original.address = new Address("Main St.", 7);
+
+        var copy = DeepCopyMaker.deepCopy(original, options);
+
+        assertDistinctInstancesMatch(copy, original);
+        assertThat(options.plans().of(Customer.class).kind()).isEqualTo(ClassPlan.Kind.CUSTOM);
+        assertThat(options.plans().of(Customer.class).hasPlannedFields()).isFalse();
+        assertThat(options.plans().of(Address.class).hasPlannedFields()).isFalse();
+    }
+
+    @Test
+    void should_prepare_without_reflective_access_to_fields() {
+        var options = CopyOptions.withFreshPlans().prepare(Customer.class);
+
+        assertThat(options.plans().plannedClassNames()).contains(Address.class.getName());
+        assertThat(options.plans().of(Customer.class).hasPlannedFields()).isFalse();
+    }
+
+    @Test
+    void should_honour_policies_and_cycles_in_generated_copier() {
+        var original = new Customer();
+        original.friend = original;
+        original.registry = new StringBuilder("shared");
+        original.sessionToken = "secret";
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.friend).isSameAs(copy);
+        assertThat(copy.registry).isSameAs(original.registry);
+        assertThat(copy.sessionToken).isNull();
+    }
+
+    @Test
+    void should_fall_back_to_reflection_under_programmatic_field_rules() {
+        var original = new Customer();
+        original.tags = new ArrayList<>(List.of("a"));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().sharingField(Customer.class, "tags"));
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.tags).isSameAs(original.tags);
+    }
+
+    @DeepCopyable
+    static class Customer {
+        String name;
+        int age;
+        Address address;
+        List<String> tags;
+        int[] scores;
+        Customer friend;
+        @ShareReference
+        StringBuilder registry;
+        @SkipCopy
+        String sessionToken;
+    }
+
+    @DeepCopyable
+    record Address(String street, int number) {}
+}
@@ -0,0 +1,128 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestDeepCopyWithSharePolicies {
+
+    @Test
+    void should_share_and_skip_annotated_fields() {
+        var original = new AnnotatedHolder(new ArrayList<>(List.of("a")), new ArrayList<>(List.of("b")), new ArrayList<>(List.of("c")));
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.shared).isSameAs(original.shared);
+        assertThat(copy.skipped).isNull();
+        assertThat(copy.copied).isNotSameAs(original.copied).isEqualTo(original.copied);
+    }
+
+    @Test
+    void should_share_values_of_annotated_type_wherever_met() {
+        var registry = new Registry();
+        var original = new ArrayList<Object>(List.of(registry, new Holder(registry)));
+
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(copy.get(0)).isSameAs(registry);
+        assertThat(((Holder) copy.get(1)).value).isSameAs(registry);
+    }
+
+    @Test
+    void should_apply_programmatic_type_and_field_rules() {
+        var cache = new StringBuilder("cache");
+        var original = new Pair(new Holder(cache), new Holder(new StringBuilder("other")));
+
+        var options = CopyOptions.defaults()
+                                 .sharing(CharSequence.class)
+                                 .skippingField(Pair.class, "second");
+
+        var copy = DeepCopyMaker.deepCopy(original, options);
+
+        assertThat(copy.first).isNotSameAs(original.first);
+        assertThat(copy.first.value).isSameAs(cache);
+        assertThat(copy.second).isNull();
+    }
+
+    @Test
+    void should_skip_transient_fields_only_when_asked() {
+        var original = new WithTransient(42, "kept");
+
+        var plainCopy = DeepCopyMaker.deepCopy(original);
+        var prunedCopy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().skippingTransient());
+
+        assertThat(plainCopy.counter).isEqualTo(42);
+        assertThat(prunedCopy.counter).isZero();
+        assertThat(prunedCopy.name).isEqualTo("kept");
+    }
+
+    @Test
+    void should_pass_default_value_for_skipped_record_component() {
+        var original = new RecordWithSkipped("name", new int[]{1, 2});
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().skippingField(RecordWithSkipped.class, "data"));
+
+        assertThat(copy.name()).isEqualTo("name");
+        assertThat(copy.data()).isNull();
+    }
+
+    @Test
+    void should_reject_rule_for_unknown_field() {
+        assertThatThrownBy(() -> CopyOptions.defaults().sharingField(Pair.class, "third"))
+            .isExactlyInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("third");
+    }
+
+    static class AnnotatedHolder {
+        @ShareReference
+        List<String> shared;
+        @SkipCopy
+        List<String> skipped;
+        List<String> copied;
+
+        AnnotatedHolder(List<String> shared, List<String> skipped, List<String> copied) {
+            this.shared = shared;
+            this.skipped = skipped;
+            this.copied = copied;
+        }
+    }
+
+    @ShareReference
+    static class Registry {
+        final List<String> entries = new ArrayList<>();
+    }
+
+    static class Holder {
+        Object value;
+
+        Holder(Object value) {
+            this.value = value;
+        }
+    }
+
+    static class Pair {
+        Holder first;
+        Holder second;
+
+        Pair(Holder first, Holder second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    static class WithTransient {
+        transient int counter;
+        String name;
+
+        WithTransient(int counter, String name) {
+            this.counter = counter;
+            this.name = name;
+        }
+    }
+
+    record RecordWithSkipped(String name, int[] data) {}
+}
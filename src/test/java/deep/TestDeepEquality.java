@@ -0,0 +1,172 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class TestDeepEquality {
+
+    @Test
+    void should_find_graph_equal_to_its_deep_copy() {
+        var original = new Node("root", new int[]{1, 2, 3}, new ArrayList<>(List.of(new Node("leaf", new int[0], new ArrayList<>()))));
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(DeepEquality.deepEquals(original, copy)).isTrue();
+        assertThat(DeepEquality.deepHash(original)).isEqualTo(DeepEquality.deepHash(copy));
+    }
+
+    @Test
+    void should_detect_difference_deep_in_primitive_array() {
+        var original = new Node("root", new int[]{1, 2, 3}, new ArrayList<>());
+        var copy = DeepCopyMaker.deepCopy(original);
+        copy.values[2] = 4;
+
+        assertThat(DeepEquality.deepEquals(original, copy)).isFalse();
+    }
+
+    @Test
+    void should_compare_cyclic_graphs() {
+        var original = TestDeepCopyOnCircularRefs.Car.makeCircle(50);
+        var copy = DeepCopyMaker.deepCopy(original);
+
+        assertThat(DeepEquality.deepEquals(original, copy)).isTrue();
+        assertThat(DeepEquality.deepHash(original)).isEqualTo(DeepEquality.deepHash(copy));
+        assertThat(DeepEquality.deepEquals(original, TestDeepCopyOnCircularRefs.Car.makeCircle(49))).isFalse();
+    }
+
+    @Test
+    void should_tell_shared_node_from_two_equal_nodes() {
+        var node = new Node("n", new int[]{1}, new ArrayList<>());
+        var shared = new Node[]{node, node};
+        var distinct = new Node[]{node, new Node("n", new int[]{1}, new ArrayList<>())};
+
+        assertThat(DeepEquality.deepEquals(shared, DeepCopyMaker.deepCopy(shared))).isTrue();
+        assertThat(DeepEquality.deepEquals(shared, distinct)).isFalse();
+        assertThat(DeepEquality.deepEquals(distinct, shared)).isFalse();
+    }
+
+    @Test
+    void should_compare_records_and_collections_by_value() {
+        Map<String, Point> original = new HashMap<>(Map.of("a", new Point(1, 2), "b", new Point(3, 4)));
+        Map<String, Point> other = new HashMap<>(Map.of("a", new Point(1, 2), "b", new Point(3, 5)));
+
+        assertThat(DeepEquality.deepEquals(original, DeepCopyMaker.deepCopy(original))).isTrue();
+        assertThat(DeepEquality.deepEquals(original, other)).isFalse();
+    }
+
+    @Test
+    void should_compare_collections_regardless_of_capacity_and_history() {
+        Map<String, Point> roomy = new HashMap<>(1024);
+        Map<String, Point> tight = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            roomy.put("k" + i, new Point(i, i));
+            tight.put("k" + (99 - i), new Point(99 - i, 99 - i));
+        }
+        List<Point> grown = new ArrayList<>(List.of(new Point(1, 2)));
+        List<Point> presized = new ArrayList<>(64);
+        presized.add(new Point(1, 2));
+
+        assertThat(DeepEquality.deepEquals(roomy, tight)).isTrue();
+        assertThat(DeepEquality.deepHash(roomy)).isEqualTo(DeepEquality.deepHash(tight));
+        assertThat(DeepEquality.deepEquals(grown, presized)).isTrue();
+        assertThat(DeepEquality.deepHash(grown)).isEqualTo(DeepEquality.deepHash(presized));
+        tight.put("k0", new Point(0, 1));
+        assertThat(DeepEquality.deepEquals(roomy, tight)).isFalse();
+    }
+
+    @Test
+    void should_pair_set_elements_the_way_they_are_shared() {
+        var first = new Node("first", new int[0], new ArrayList<>());
+        var second = new Node("second", new int[0], new ArrayList<>());
+        var firstCopy = DeepCopyMaker.deepCopy(first);
+        var secondCopy = DeepCopyMaker.deepCopy(second);
+
+        var left = new Object[]{new LinkedHashSet<>(List.of(first, second)), first};
+        var reordered = new Object[]{new LinkedHashSet<>(List.of(secondCopy, firstCopy)), firstCopy};
+        var misshared = new Object[]{new LinkedHashSet<>(List.of(secondCopy, firstCopy)), secondCopy};
+
+        assertThat(DeepEquality.deepEquals(left, reordered)).isTrue();
+        assertThat(DeepEquality.deepHash(left)).isEqualTo(DeepEquality.deepHash(reordered));
+        assertThat(DeepEquality.deepEquals(left, misshared)).isFalse();
+    }
+
+    @Test
+    void should_honour_share_and_skip_policies() {
+        var registry = new StringBuilder("registry");
+        var left = new Holder(registry, "left");
+        var right = new Holder(new StringBuilder("registry"), "right");
+        var options = CopyOptions.defaults().sharing(StringBuilder.class).skippingField(Holder.class, "note");
+
+        assertThat(DeepEquality.deepEquals(left, right, options)).isFalse();
+        assertThat(DeepEquality.deepEquals(left, new Holder(registry, "other"), options)).isTrue();
+        assertThat(DeepEquality.deepHash(left, options)).isEqualTo(DeepEquality.deepHash(new Holder(registry, "other"), options));
+    }
+
+    @Test
+    void should_handle_nulls_and_different_classes() {
+        assertThat(DeepEquality.deepEquals(null, null)).isTrue();
+        assertThat(DeepEquality.deepEquals(new int[0], null)).isFalse();
+        assertThat(DeepEquality.deepEquals(new int[0], new long[0])).isFalse();
+        assertThat(DeepEquality.deepHash(null)).isZero();
+    }
+
+    @Test
+    void should_locate_offending_object_when_comparing_or_hashing_fails() {
+        var original = new ArrayList<>(List.of(new Guarded(), new Guarded(new ReentrantLock())));
+
+        var comparing = catchThrowableOfType(DeepCopyException.class, () -> DeepEquality.deepEquals(original, new ArrayList<>(original)));
+        var hashing = catchThrowableOfType(DeepCopyException.class, () -> DeepEquality.deepHash(original));
+
+        // the JDK does not open the internals of locks to reflection
+        assertThat(comparing.getPath()).isEqualTo("root[1].lock");
+        assertThat(comparing.getFailingClass()).isEqualTo(ReentrantLock.class);
+        assertThat(comparing.getRootClass()).isEqualTo(ArrayList.class);
+        assertThat(comparing).hasMessageStartingWith("Unable to compare java.util.ArrayList: java.lang.reflect.InaccessibleObjectException");
+        assertThat(hashing.getPath()).isEqualTo("root[1].lock");
+        assertThat(hashing).hasMessageStartingWith("Unable to hash java.util.ArrayList: ");
+    }
+
+    static class Node {
+        String name;
+        int[] values;
+        List<Node> children;
+
+        Node(String name, int[] values, List<Node> children) {
+            this.name = name;
+            this.values = values;
+            this.children = children;
+        }
+    }
+
+    record Point(int x, int y) {
+    }
+
+    static class Guarded {
+        Object lock;
+
+        Guarded() {
+        }
+
+        Guarded(Object lock) {
+            this.lock = lock;
+        }
+    }
+
+    static class Holder {
+        StringBuilder registry;
+        String note;
+
+        Holder(StringBuilder registry, String note) {
+            this.registry = registry;
+            this.note = note;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestPartialDeepCopy {
+
+    @Test
+    void should_copy_root_and_direct_collections_and_share_deeper_objects() {
+        var original = Order.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToDepth(1));
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.lines).isNotSameAs(original.lines).hasSize(2);
+        assertThat(copy.lines.get(0)).isSameAs(original.lines.get(0));
+        assertThat(copy.customer).isNotSameAs(original.customer);
+        assertThat(copy.customer.address).isSameAs(original.customer.address);
+
+        copy.lines.add(new Line(new Price(0), List.of()));
+        assertThat(original.lines).hasSize(2);
+    }
+
+    @Test
+    void should_copy_root_alone_at_depth_zero() {
+        var original = Order.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToDepth(0));
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.lines).isSameAs(original.lines);
+        assertThat(copy.customer).isSameAs(original.customer);
+    }
+
+    @Test
+    void should_copy_only_selected_paths() {
+        var original = Order.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToPaths("lines[*].price"));
+
+        assertThat(copy.customer).isSameAs(original.customer);
+        assertThat(copy.lines).isNotSameAs(original.lines);
+        for (int i = 0; i < original.lines.size(); i++) {
+            assertThat(copy.lines.get(i)).isNotSameAs(original.lines.get(i));
+            assertThat(copy.lines.get(i).price).isNotSameAs(original.lines.get(i).price);
+            assertThat(copy.lines.get(i).price.cents).isEqualTo(original.lines.get(i).price.cents);
+            assertThat(copy.lines.get(i).tags).isSameAs(original.lines.get(i).tags);
+        }
+    }
+
+    @Test
+    void should_preserve_sharing_and_cycles_within_copied_part() {
+        var original = Order.sample();
+        original.customer.lastOrder = original;
+        original.lines.add(original.lines.get(0));
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToPaths("customer", "lines[*]"));
+
+        assertThat(copy.customer.lastOrder).isSameAs(copy);
+        assertThat(copy.lines.get(2)).isSameAs(copy.lines.get(0)).isNotSameAs(original.lines.get(0));
+    }
+
+    @Test
+    void should_keep_cycles_back_into_copied_part_beyond_depth() {
+        var original = Order.sample();
+        original.customer.lastOrder = original;
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToDepth(1));
+
+        assertThat(copy.customer).isNotSameAs(original.customer);
+        assertThat(copy.customer.address).isSameAs(original.customer.address);
+        assertThat(copy.customer.lastOrder).isSameAs(copy);
+        assertThat(DeepCopyMaker.prototype(original, CopyOptions.defaults().limitedToDepth(1)).newCopy())
+            .satisfies(replayed -> assertThat(replayed.customer.lastOrder).isSameAs(replayed));
+    }
+
+    @Test
+    void should_match_any_segment_with_wildcard() {
+        var original = Order.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToPaths("*.address"));
+
+        assertThat(copy.customer).isNotSameAs(original.customer);
+        assertThat(copy.customer.address).isNotSameAs(original.customer.address);
+        assertThat(copy.lines).isNotSameAs(original.lines);
+        assertThat(copy.lines.get(0)).isSameAs(original.lines.get(0));
+    }
+
+    @Test
+    void should_count_each_level_of_nested_containers() {
+        var original = Sheet.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToPaths("rows[*][*].price", "grid[*][*].price", "byName[*][*].price"));
+
+        for (var cells : List.of(copy.rows.get(0), List.of(copy.grid[0]), copy.byName.get("a"))) {
+            assertThat(cells.get(0).price).isNotSameAs(original.rows.get(0).get(0).price);
+            assertThat(cells.get(0).note).isSameAs(original.rows.get(0).get(0).note);
+        }
+        assertThat(copy.rows.get(0)).isNotSameAs(original.rows.get(0));
+        assertThat(copy.grid[0]).isNotSameAs(original.grid[0]);
+        assertThat(copy.byName.get("a")).isNotSameAs(original.byName.get("a"));
+    }
+
+    @Test
+    void should_not_match_nested_elements_one_level_up() {
+        var original = Sheet.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToPaths("rows[*].price", "grid[*].price"));
+
+        assertThat(copy.rows.get(0)).isNotSameAs(original.rows.get(0));
+        assertThat(copy.rows.get(0).get(0)).isSameAs(original.rows.get(0).get(0));
+        assertThat(copy.grid[0][0]).isSameAs(original.grid[0][0]);
+    }
+
+    @Test
+    void should_count_jdk_values_and_user_objects_as_elements_alike() {
+        var original = Sheet.sample();
+
+        var copy = DeepCopyMaker.deepCopy(original, CopyOptions.defaults().limitedToDepth(1));
+
+        assertThat(copy.dates).isNotSameAs(original.dates);
+        assertThat(copy.dates.get(0)).isSameAs(original.dates.get(0));
+        assertThat(copy.rows).isNotSameAs(original.rows);
+        assertThat(copy.rows.get(0)).isSameAs(original.rows.get(0));
+        assertThat(copy.byName).isNotSameAs(original.byName);
+        assertThat(copy.byName.get("a")).isSameAs(original.byName.get("a"));
+
+        copy.byName.put("b", List.of());
+        copy.byName.remove("a");
+        assertThat(original.byName).containsOnlyKeys("a");
+    }
+
+    @Test
+    void should_reject_malformed_paths() {
+        assertThatThrownBy(() -> CopyOptions.defaults().limitedToPaths("lines[3].price"))
+            .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CopyOptions.defaults().limitedToPaths("lines..price"))
+            .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CopyOptions.defaults().limitedToDepth(-1))
+            .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    static class Order {
+        List<Line> lines;
+        Customer customer;
+
+        static Order sample() {
+            var order = new Order();
+            order.lines = new ArrayList<>(List.of(
+                new Line(new Price(100), new ArrayList<>(List.of("a"))),
+                new Line(new Price(250), new ArrayList<>(List.of("b")))
+            ));
+            order.customer = new Customer();
+            order.customer.address = new StringBuilder("Main St.");
+            return order;
+        }
+    }
+
+    static class Sheet {
+        List<List<Cell>> rows;
+        Cell[][] grid;
+        Map<String, List<Cell>> byName;
+        List<Date> dates;
+
+        static Sheet sample() {
+            var cell = new Cell(new Price(10), new StringBuilder("note"));
+            var sheet = new Sheet();
+            sheet.rows = new ArrayList<>(List.of(new ArrayList<>(List.of(cell))));
+            sheet.grid = new Cell[][]{{cell}};
+            sheet.byName = new HashMap<>(Map.of("a", new ArrayList<>(List.of(cell))));
+            sheet.dates = new ArrayList<>(List.of(new Date(0)));
+            return sheet;
+        }
+    }
+
+    static class Cell {
+        Price price;
+        StringBuilder note;
+
+        Cell(Price price, StringBuilder note) {
+            this.price = price;
+            this.note = note;
+        }
+    }
+
+    static class Line {
+        Price price;
+        List<String> tags;
+
+        Line(Price price, List<String> tags) {
+            this.price = price;
+            this.tags = tags;
+        }
+    }
+
+    static class Price {
+        long cents;
+
+        Price(long cents) {
+            this.cents = cents;
+        }
+    }
+
+    static class Customer {
+        StringBuilder address;
+        Order lastOrder;
+    }
+}
@@ -0,0 +1,169 @@
+package deep;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static deep.Util.assertDistinctInstancesMatch;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class TestPrototype {
+
+    @Test
+    void should_stamp_out_distinct_copies() {
+        var original = TestPartialDeepCopy.Order.sample();
+        var prototype = DeepCopyMaker.prototype(original);
+
+        var first = prototype.newCopy();
+        var second = prototype.newCopy();
+
+        assertThat(DeepEquality.deepEquals(first, original)).isTrue();
+        assertThat(DeepEquality.deepEquals(second, original)).isTrue();
+        assertThat(first).isNotSameAs(original);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.lines).isNotSameAs(first.lines);
+        assertThat(second.lines.get(0).price).isNotSameAs(first.lines.get(0).price);
+        assertThat(second.customer.address).isNotSameAs(first.customer.address);
+    }
+
+    @Test
+    void should_copy_graph_as_recorded() {
+        var note = new StringBuilder("draft");
+        var quantities = new int[]{1, 2};
+        var prototype = DeepCopyMaker.prototype(new ArrayList<Object>(List.of(note, quantities)));
+
+        note.append(" changed");
+        quantities[0] = 100;
+
+        var copy = prototype.newCopy();
+
+        assertThat(copy.get(0)).hasToString("draft");
+        assertThat((int[]) copy.get(1)).containsExactly(1, 2);
+    }
+
+    @Test
+    void should_keep_cycles_and_shared_references() {
+        var original = TestDeepCopyOnCircularRefs.Car.makeCircle(100);
+        var prototype = DeepCopyMaker.prototype(original);
+
+        var copy = prototype.newCopy();
+
+        assertThat(DeepEquality.deepEquals(original, copy)).isTrue();
+        var shared = new StringBuilder("shared");
+        var notes = new StringBuilder[]{shared, shared};
+        var notesCopy = DeepCopyMaker.prototype(notes).newCopy();
+        assertThat(notesCopy[0]).isNotSameAs(shared).isSameAs(notesCopy[1]);
+    }
+
+    @Test
+    void should_replay_records_and_dedicated_copiers() {
+        var original = new HashMap<String, Object>(Map.of(
+            "point", new Point(1, 2),
+            "buffer", ByteBuffer.wrap(new byte[]{1, 2, 3}),
+            "deque", new ArrayDeque<>(List.of(new Point(3, 4), new StringBuilder("sb")))
+        ));
+
+        var copy = DeepCopyMaker.prototype(original).newCopy();
+
+        assertThat(DeepEquality.deepEquals(original, copy)).isTrue();
+        assertThat(copy.get("buffer")).isNotSameAs(original.get("buffer"));
+        assertThat(((ArrayDeque<?>) copy.get("deque")).peekLast()).isNotSameAs(((ArrayDeque<?>) original.get("deque")).peekLast());
+    }
+
+    @Test
+    void should_fall_back_to_snapshot_for_cycle_through_dedicated_copier() {
+        var original = new EnumMap<TestDeepCopyOnJdkStorageTypes.Color, Object>(TestDeepCopyOnJdkStorageTypes.Color.class);
+        original.put(TestDeepCopyOnJdkStorageTypes.Color.RED, original);
+        var prototype = DeepCopyMaker.prototype(original);
+
+        var copy = prototype.newCopy();
+
+        assertThat(copy).isNotSameAs(original);
+        assertThat(copy.get(TestDeepCopyOnJdkStorageTypes.Color.RED)).isSameAs(copy);
+    }
+
+    @Test
+    void should_share_what_options_share() {
+        var registry = new StringBuilder("registry");
+        var original = new ArrayList<Object>(List.of(registry, TestPartialDeepCopy.Order.sample()));
+
+        var copy = DeepCopyMaker.prototype(original, CopyOptions.defaults().sharing(StringBuilder.class)).newCopy();
+
+        assertThat(copy.get(0)).isSameAs(registry);
+        assertDistinctInstancesMatch(copy.get(1), original.get(1));
+    }
+
+    @Test
+    void should_instantiate_only_when_replaying() {
+        var original = new ArrayList<>(List.of(new Counted(), new Counted(), new Counted()));
+        Counted.created = 0;
+
+        var prototype = DeepCopyMaker.prototype(original);
+        int whileRecording = Counted.created;
+        prototype.newCopy();
+
+        // a class is probed once, the first time it is met
+        assertThat(whileRecording).isLessThanOrEqualTo(1);
+        assertThat(Counted.created - whileRecording).isEqualTo(3);
+    }
+
+    @Test
+    void should_replay_atomic_and_null_roots() {
+        assertThat(DeepCopyMaker.prototype("text").newCopy()).isEqualTo("text");
+        assertThat(DeepCopyMaker.prototype(null).newCopy()).isNull();
+    }
+
+    @Test
+    void should_locate_offending_object_when_replay_fails() {
+        var original = new ArrayList<>(List.of(new Booking(new Seat()), new Booking(new Seat())));
+        var prototype = DeepCopyMaker.prototype(original);
+
+        Seat.soldOut = true;
+        try {
+            var failure = catchThrowableOfType(DeepCopyException.class, prototype::newCopy);
+
+            assertThat(failure.getPath()).isEqualTo("root[0].seat");
+            assertThat(failure.getFailingClass()).isEqualTo(Seat.class);
+            assertThat(failure.getRootClass()).isEqualTo(ArrayList.class);
+            assertThat(failure).hasMessageContaining("java.lang.IllegalStateException: sold out at root[0].seat");
+        } finally {
+            Seat.soldOut = false;
+        }
+    }
+
+    static class Counted {
+        static int created;
+
+        Counted() {
+            created++;
+        }
+    }
+
+    static class Booking {
+        Seat seat;
+
+        Booking(Seat seat) {
+            this.seat = seat;
+        }
+    }
+
+    static class Seat {
+        static boolean soldOut;
+
+        Seat() {
+            if (soldOut) {
+                throw new IllegalStateException("sold out");
+            }
+        }
+    }
+
+    record Point(int x, int y) {
+    }
+}